@@ -14,6 +14,7 @@ import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import com.gmail.frcteam1758.lib.swervedrive.vortex.VortexSwerveModule;
+import com.gmail.frcteam1758.lib.util.SparkConfigs;
 
 /**
  * obsolete; use {@link VortexSwerveModule} instead
@@ -46,8 +47,8 @@ public class MaxSwerveModule implements SwerveModule {
         m_drvMtr = new SparkMax(p_drvCanId, SparkLowLevel.MotorType.kBrushless);
         m_strMtr = new SparkMax(p_strCanId, SparkLowLevel.MotorType.kBrushless);
 
-        m_drvMtr.configure(dcfg, ResetMode.kResetSafeParameters, PersistMode.kPersistParameters);
-        m_strMtr.configure(scfg, ResetMode.kResetSafeParameters, PersistMode.kPersistParameters);
+        SparkConfigs.configure(m_drvMtr, dcfg, ResetMode.kResetSafeParameters, PersistMode.kPersistParameters);
+        SparkConfigs.configure(m_strMtr, scfg, ResetMode.kResetSafeParameters, PersistMode.kPersistParameters);
 
         m_drvEncoder = m_drvMtr.getEncoder();
         m_strEncoder = m_strMtr.getAbsoluteEncoder();
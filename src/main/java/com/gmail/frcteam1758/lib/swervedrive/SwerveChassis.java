@@ -4,6 +4,7 @@ import java.util.function.Supplier;
 
 import com.gmail.frcteam1758.lib.swervedrive.control.SwerveDriveInput;
 import com.gmail.frcteam1758.lib.swervedrive.control.SwerveDriveState;
+import com.gmail.frcteam1758.lib.util.InputLatency;
 
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
@@ -38,8 +39,11 @@ public class SwerveChassis implements AutoCloseable {
      */
     public void run(SwerveDriveState p_state) {
 
+        InputLatency.X.markRun();
+
         if (p_state.lock) {
             for (var i : m_modules) i.lock();
+            InputLatency.X.record();
             return;
         }
         SwerveModuleState[] l_states = m_kinematics.toSwerveModuleStates(p_state.speeds);
@@ -53,6 +57,8 @@ public class SwerveChassis implements AutoCloseable {
                 l_states[i].speedMetersPerSecond - getModuleStates()[i].speedMetersPerSecond
             );
         }
+
+        InputLatency.X.record();
     }
 
     public void performTeleop() { run(m_ctrl.getCommandedState()); }
@@ -4,9 +4,12 @@ import java.util.function.Supplier;
 
 import com.gmail.frcteam1758.lib.swervedrive.control.SwerveDriveInput;
 
+import edu.wpi.first.math.Matrix;
 import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
 import frc.robot.subsystems.NavSubsystem;
 
 public class SwerveChassis2 extends SwerveChassis {
@@ -59,4 +62,25 @@ public class SwerveChassis2 extends SwerveChassis {
 
         return this.poseEstimator.update(this.m_angleSupplier.get(), this.getModulePositions());
     }
+
+    /**
+     * adds a vision measurement with the given trust, then updates odometry
+     * @param visionPose the pose measured by vision
+     * @param visionTimestamp the capture time of the measurement, on the FPGA time base
+     * @param stdDevs standard deviations of the measurement (x m, y m, theta rad)
+     * @return the updated pose
+     */
+    public Pose2d getPose(Pose2d visionPose, double visionTimestamp, Matrix<N3, N1> stdDevs) {
+
+        this.poseEstimator.addVisionMeasurement(visionPose, visionTimestamp, stdDevs);
+
+        return this.poseEstimator.update(this.m_angleSupplier.get(), this.getModulePositions());
+    }
+
+    /**
+     * @return the most recent pose estimate, without updating odometry
+     */
+    public Pose2d getEstimatedPose() {
+        return this.poseEstimator.getEstimatedPosition();
+    }
 }
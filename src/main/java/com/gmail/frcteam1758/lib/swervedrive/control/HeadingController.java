@@ -0,0 +1,104 @@
+package com.gmail.frcteam1758.lib.swervedrive.control;
+
+import com.gmail.frcteam1758.lib.util.SwerveUtils;
+
+import edu.wpi.first.math.MathUtil;
+
+/**
+ * time-optimal (bang-bang) heading controller for snap-to-angle driving.
+ * <p>
+ * Each cycle, the wrapped heading error decides the fastest velocity that can still stop
+ * on target when slowing by {@code maxAccel * dt} per cycle (about {@code sqrt(2 * maxAccel * |e|)},
+ * minus the overshoot the continuous formula has at a fixed loop rate), capped at {@code maxVel},
+ * and the commanded velocity steps toward it from the measured (gyro) rate by at most
+ * {@code maxAccel * dt}.
+ * <p>
+ * Works entirely in primitives, so {@link #calculate(double, double, double, double)} does not allocate
+ */
+public class HeadingController {
+
+    protected double m_maxVel, m_maxAccel, m_tolerance;
+
+    protected double m_target = 0;
+
+    /** NaN until the first {@link #calculate(double, double, double)} after construction or {@link #reset()} */
+    protected double m_error = Double.NaN;
+
+    /**
+     * @param p_maxVel maximum angular velocity, in rad/s
+     * @param p_maxAccel maximum angular acceleration, in rad/s^2
+     * @param p_tolerance error below which the heading counts as on target, in radians
+     */
+    public HeadingController(double p_maxVel, double p_maxAccel, double p_tolerance) {
+        m_maxVel = p_maxVel;
+        m_maxAccel = p_maxAccel;
+        m_tolerance = p_tolerance;
+    }
+
+    /**
+     * forgets the last error, so {@link #atTarget()} is false until the next calculation
+     * (ex. when the controller starts being used again)
+     */
+    public void reset() { m_error = Double.NaN; }
+
+    public void setTarget(double p_target) { m_target = MathUtil.angleModulus(p_target); }
+
+    public double getTarget() { return m_target; }
+
+    public void setConstraints(double p_maxVel, double p_maxAccel) {
+        m_maxVel = p_maxVel;
+        m_maxAccel = p_maxAccel;
+    }
+
+    /**
+     * @param p_heading the robot's heading, in radians
+     * @param p_rate the robot's measured angular velocity, in rad/s (same direction as the heading)
+     * @param p_dt time until the next call, in seconds
+     * @return the angular velocity to command, in rad/s
+     */
+    public double calculate(double p_heading, double p_rate, double p_dt) {
+
+        m_error = MathUtil.angleModulus(m_target - p_heading);
+
+        double l_absError = Math.abs(m_error);
+
+        if (l_absError < m_tolerance) {
+            return SwerveUtils.StepTowards(p_rate, 0, m_maxAccel * p_dt);
+        }
+
+        if (p_dt <= 0) return p_rate;
+
+        // fastest speed that can still decelerate to rest on target: slowing from k * a * dt by
+        // a * dt per cycle covers a * dt^2 * k(k + 1) / 2, solved for k. The |e| / dt term stops
+        // the last step from jumping past it
+        double l_stepDistance = m_maxAccel * p_dt * p_dt;
+        double l_stopping = m_maxAccel * p_dt * (Math.sqrt(1 + 8 * l_absError / l_stepDistance) - 1) / 2;
+
+        double l_desired = Math.copySign(
+            Math.min(m_maxVel, Math.min(l_stopping, l_absError / p_dt)),
+            m_error
+        );
+
+        return SwerveUtils.StepTowards(p_rate, l_desired, m_maxAccel * p_dt);
+    }
+
+    /**
+     * sets the target, then calculates (see {@link #calculate(double, double, double)})
+     */
+    public double calculate(double p_heading, double p_rate, double p_target, double p_dt) {
+        setTarget(p_target);
+        return calculate(p_heading, p_rate, p_dt);
+    }
+
+    /**
+     * @return the wrapped error from the last call to {@link #calculate(double, double, double)}, in radians
+     * (NaN if there has been none since {@link #reset()})
+     */
+    public double getError() { return m_error; }
+
+    /**
+     * @return whether the last error was within tolerance ({@code false} if there has been no
+     * calculation since construction or {@link #reset()})
+     */
+    public boolean atTarget() { return !Double.isNaN(m_error) && Math.abs(m_error) < m_tolerance; }
+}
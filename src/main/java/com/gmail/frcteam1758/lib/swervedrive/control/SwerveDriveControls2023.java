@@ -3,23 +3,32 @@ package com.gmail.frcteam1758.lib.swervedrive.control;
 import static com.gmail.frcteam1758.lib.enums.SwerveDriveMode.FIELD_ORIENTED;
 import static com.gmail.frcteam1758.lib.enums.SwerveDriveMode.ROBOT_ORIENTED;
 
+import java.util.function.DoubleSupplier;
+import java.util.function.DoubleUnaryOperator;
 import java.util.function.Supplier;
 
 import com.gmail.frcteam1758.lib.enums.SwerveDriveMode;
 import com.gmail.frcteam1758.lib.swervedrive.MaxSwerveConstants;
 import com.gmail.frcteam1758.lib.swervedrive.MaxSwerveConstants.DriveConstants;
-import com.gmail.frcteam1758.lib.util.SwerveUtils;
+import com.gmail.frcteam1758.lib.util.DistanceField;
+import com.gmail.frcteam1758.lib.util.DoubleBoundedSet;
+import com.gmail.frcteam1758.lib.util.InputLatency;
+import com.gmail.frcteam1758.lib.util.ResponseCurve;
 
-import edu.wpi.first.math.MathUtil;
-import edu.wpi.first.math.filter.SlewRateLimiter;
+import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
-import edu.wpi.first.math.kinematics.ChassisSpeeds;
-import edu.wpi.first.util.WPIUtilJNI;
 import edu.wpi.first.wpilibj.Joystick;
 
 /**
  * The main implementation of {@link SwerveDriveInput}. I took most of this from the
  * publicly availible rev demo code
+ * <p>
+ * input runs through a {@link SwerveInputPipeline}: deadband -> response curve ->
+ * slew limiting -> scaling -> heading hold -> heading lead -> field rotation -> obstacle assist ->
+ * discretization. Field rotation (and heading lead) are only used in field-oriented mode; heading lead and
+ * discretization are off until {@link #enableLatencyCompensation(DoubleSupplier, double, double)},
+ * obstacle assist until {@link #enableObstacleAssist(Supplier, Supplier, double, double)},
+ * and heading hold until {@link #enableHeadingHold(DoubleSupplier, DoubleSupplier)}
  */
 public class SwerveDriveControls2023 implements SwerveDriveInput {
 
@@ -31,23 +40,37 @@ public class SwerveDriveControls2023 implements SwerveDriveInput {
         m_maxSpeed,
         m_maxSpeedR;
 
-    // variables for stolen code
-    @SuppressWarnings("unused") // REV has "m_currentRotation" as a field, and it works, so ...
-    private double m_currentRotation = 0.0;
-    private double m_currentTranslationDir = 0.0;
-    private double m_currentTranslationMag = 0.0;
-
-    private SlewRateLimiter m_magLimiter = new SlewRateLimiter(DriveConstants.kMagnitudeSlewRate);
-    private SlewRateLimiter m_rotLimiter = new SlewRateLimiter(DriveConstants.kRotationalSlewRate);
-    private double m_prevTime = WPIUtilJNI.now() * 1e-6;
-    
-    /** retrieves the robot's current rotation relative to the field,
+    protected final SwerveInputStages.ResponseCurve m_curve = new SwerveInputStages.ResponseCurve(
+        DoubleUnaryOperator.identity(), DoubleUnaryOperator.identity()
+    );
+
+    protected final SwerveInputStages.Scale m_scale;
+
+    protected final SwerveInputStages.HeadingLead m_headingLead = new SwerveInputStages.HeadingLead();
+
+    protected final SwerveInputStages.Discretize m_discretize = new SwerveInputStages.Discretize();
+
+    protected final SwerveInputStages.ObstacleAssist m_obstacleAssist = new SwerveInputStages.ObstacleAssist();
+
+    protected final SwerveInputStages.HeadingHold m_headingHold;
+
+    protected final SwerveInputPipeline m_pipeline;
+
+    /** translation speed multipliers, or {@code null} for always full speed */
+    protected DoubleBoundedSet m_speedModes = null;
+
+    protected int m_speedUpButton, m_speedDownButton;
+
+    /** retrieves the robot's current rotation relative to the field in radians,
     * for use in field-relative drive
     */
-    protected Supplier<Rotation2d> m_rotationGetter;
+    protected DoubleSupplier m_headingGetter;
+
+    /** gets {@code 0d}, in the case that a gyroscope is not avalible for input (returns a shared constant) */
+    public static final Supplier<Rotation2d> GET_ZERO = () -> Rotation2d.kZero;
 
-    /** gets {@code 0d}, in the case that a gyroscope is not avalible for input */
-    public static final Supplier<Rotation2d> GET_ZERO = () -> new Rotation2d();
+    /** same as {@link #GET_ZERO}, in radians */
+    public static final DoubleSupplier GET_ZERO_RADIANS = () -> 0;
 
     /**
      * constructs a {@code SwerveDriveControlls2023} using the USB port numbers of the joysticks.
@@ -58,7 +81,7 @@ public class SwerveDriveControls2023 implements SwerveDriveInput {
      * @param p_rightPort the USB port used by the right stick
      */
     public SwerveDriveControls2023(int p_leftPort, int p_rightPort) {
-        this(p_leftPort, p_rightPort, GET_ZERO, ROBOT_ORIENTED, 1d, 1d);
+        this(p_leftPort, p_rightPort, GET_ZERO_RADIANS, ROBOT_ORIENTED, 1d, 1d);
     }
 
     public SwerveDriveControls2023(int p_leftPort, int p_rightPort, Supplier<Rotation2d> p_rotGetter) {
@@ -73,100 +96,168 @@ public class SwerveDriveControls2023 implements SwerveDriveInput {
 
     public SwerveDriveControls2023(int p_leftPort, int p_rightPort, Supplier<Rotation2d> p_rotGetter,
         SwerveDriveMode p_mode, double p_spd, double p_spdR
+    ) {
+        this(p_leftPort, p_rightPort, () -> p_rotGetter.get().getRadians(), p_mode, p_spd, p_spdR);
+    }
+
+    /**
+     * same as the {@code Supplier<Rotation2d>} constructor, but the heading is read as radians,
+     * so reading it every cycle does not allocate
+     */
+    public SwerveDriveControls2023(int p_leftPort, int p_rightPort, DoubleSupplier p_headingGetter,
+        SwerveDriveMode p_mode, double p_spd, double p_spdR
     ) {
         m_leftStick  = new Joystick(p_leftPort );
         m_rightStick = new Joystick(p_rightPort);
 
         m_mode = p_mode;
 
-        m_rotationGetter = p_rotGetter;
+        m_headingGetter = p_headingGetter;
 
         m_maxSpeed = p_spd;
         m_maxSpeedR = p_spdR;
+
+        m_scale = new SwerveInputStages.Scale(m_maxSpeed, m_maxSpeedR);
+
+        // holds at most the driver's top turning speed, reached in a quarter second
+        m_headingHold = new SwerveInputStages.HeadingHold(
+            new HeadingController(m_maxSpeedR, 4 * m_maxSpeedR, Math.toRadians(1))
+        );
+
+        m_pipeline = new SwerveInputPipeline(m_headingGetter, buildStages());
     }
 
     /**
-     * permanently borrowed REV template code to limit slew rate
-     * @param p_speeds chassisspeeds to limit
+     * @return the stages of this {@link SwerveDriveControls2023}'s pipeline, in order
      */
-    private void stolenRateLimitingCode(ChassisSpeeds p_speeds) {
-
-      double xSpeed = p_speeds.vxMetersPerSecond, ySpeed = p_speeds.vyMetersPerSecond, rot = p_speeds.omegaRadiansPerSecond;
-        // Convert XY to polar for rate limiting
-      double inputTranslationDir = Math.atan2(ySpeed, xSpeed);
-      double inputTranslationMag = Math.sqrt(Math.pow(xSpeed, 2) + Math.pow(ySpeed, 2));
-
-      // Calculate the direction slew rate based on an estimate of the lateral acceleration
-      double directionSlewRate;
-      if (m_currentTranslationMag != 0.0) {
-        directionSlewRate = Math.abs(DriveConstants.kDirectionSlewRate / m_currentTranslationMag);
-      } else {
-        directionSlewRate = 500.0; //some high number that means the slew rate is effectively instantaneous
-      }
-      
-
-      double currentTime = WPIUtilJNI.now() * 1e-6;
-      double elapsedTime = currentTime - m_prevTime;
-      double angleDif = SwerveUtils.AngleDifference(inputTranslationDir, m_currentTranslationDir);
-      if (angleDif < 0.45*Math.PI) {
-        m_currentTranslationDir = SwerveUtils.StepTowardsCircular(m_currentTranslationDir, inputTranslationDir, directionSlewRate * elapsedTime);
-        m_currentTranslationMag = m_magLimiter.calculate(inputTranslationMag);
-      }
-      else if (angleDif > 0.85*Math.PI) {
-        if (m_currentTranslationMag > 1e-4) { //some small number to avoid floating-point errors with equality checking
-          // keep currentTranslationDir unchanged
-          m_currentTranslationMag = m_magLimiter.calculate(0.0);
-        }
-        else {
-          m_currentTranslationDir = SwerveUtils.WrapAngle(m_currentTranslationDir + Math.PI);
-          m_currentTranslationMag = m_magLimiter.calculate(inputTranslationMag);
+    protected SwerveInputStage[] buildStages() {
+
+        SwerveInputStage l_deadband = new SwerveInputStages.Deadband(MaxSwerveConstants.OIConstants.kDriveDeadband);
+        SwerveInputStage l_slew = new SwerveInputStages.PolarSlewLimit(
+            DriveConstants.kDirectionSlewRate,
+            DriveConstants.kMagnitudeSlewRate,
+            DriveConstants.kRotationalSlewRate
+        );
+
+        if (m_mode == FIELD_ORIENTED) {
+            return new SwerveInputStage[] {
+                l_deadband, m_curve, l_slew, m_scale, m_headingHold,
+                m_headingLead, new SwerveInputStages.FieldRotation(), m_obstacleAssist, m_discretize
+            };
         }
-      }
-      else {
-        m_currentTranslationDir = SwerveUtils.StepTowardsCircular(m_currentTranslationDir, inputTranslationDir, directionSlewRate * elapsedTime);
-        m_currentTranslationMag = m_magLimiter.calculate(0.0);
-      }
-      m_prevTime = currentTime;
-      
-      p_speeds.vxMetersPerSecond = m_currentTranslationMag * Math.cos(m_currentTranslationDir);
-      p_speeds.vyMetersPerSecond = m_currentTranslationMag * Math.sin(m_currentTranslationDir);
-      p_speeds.omegaRadiansPerSecond = m_rotLimiter.calculate(rot);
-
-      m_currentRotation = p_speeds.omegaRadiansPerSecond;
+        return new SwerveInputStage[] {
+            l_deadband, m_curve, l_slew, m_scale, m_headingHold, m_obstacleAssist, m_discretize
+        };
     }
 
-    private double addDeadband(double x) {
-        return -MathUtil.applyDeadband(x, MaxSwerveConstants.OIConstants.kDriveDeadband);
+    /**
+     * compensates for the time between reading the gyro and the modules acting on the command:
+     * field-oriented translation is rotated by the heading extrapolated over {@code p_latency},
+     * and the command is discretized over {@code p_period} so spinning while translating
+     * stays straight
+     * @param p_rateGetter gets the robot's angular velocity, in rad/s, in the same direction as
+     * the rotation getter
+     * @param p_latency expected time from reading input to the modules acting on it (loop period + CAN)
+     * @param p_period the loop period
+     */
+    public void enableLatencyCompensation(DoubleSupplier p_rateGetter, double p_latency, double p_period) {
+        m_headingLead.enable(p_rateGetter, p_latency);
+        m_discretize.enable(p_period);
+    }
+
+    public void disableLatencyCompensation() {
+        m_headingLead.disable();
+        m_discretize.disable();
     }
 
     /**
-     * @return a {@link SwerveDriveState} object for use by a {@link SwerveChassis} or similar
+     * removes commanded velocity toward obstacles near the robot (see {@link SwerveInputStages.ObstacleAssist})
+     * @param p_poseGetter gets the robot's field pose, without updating odometry
+     * @param p_fieldGetter gets the obstacle distance field (may return {@code null} while it loads)
+     * @param p_clearance distance from robot center to obstacle where approaching velocity is fully removed
+     * @param p_slowZone distance where removal starts
+     */
+    public void enableObstacleAssist(Supplier<Pose2d> p_poseGetter, Supplier<DistanceField> p_fieldGetter,
+        double p_clearance, double p_slowZone
+    ) {
+        m_obstacleAssist.enable(p_poseGetter, p_fieldGetter, p_clearance, p_slowZone);
+    }
+
+    public void disableObstacleAssist() { m_obstacleAssist.disable(); }
+
+    /**
+     * takes rotation away from the driver and turns to (and holds) a heading, while the driver
+     * keeps translating (ex. aiming while shooting). The left trigger does not X-lock the wheels
+     * while a heading is held, so it can double as the aim/shoot button
+     * @param p_targetGetter gets the heading to hold, in radians, in the rotation getter's frame
+     * (read every cycle, so it can move)
+     * @param p_rateGetter gets the robot's angular velocity, in rad/s, in the same direction as
+     * the rotation getter
+     */
+    public void enableHeadingHold(DoubleSupplier p_targetGetter, DoubleSupplier p_rateGetter) {
+        m_headingHold.enable(p_targetGetter, p_rateGetter);
+    }
+
+    public void disableHeadingHold() { m_headingHold.disable(); }
+
+    public boolean isHoldingHeading() { return m_headingHold.isEnabled(); }
+
+    public HeadingController getHeadingController() { return m_headingHold.getController(); }
+
+    /**
+     * lets the driver step between translation speed multipliers with right stick buttons
+     * @param p_modes the multipliers (of max speed), in order
+     * @param p_upButton right stick button that steps up
+     * @param p_downButton right stick button that steps down
+     */
+    public void setSpeedModes(DoubleBoundedSet p_modes, int p_upButton, int p_downButton) {
+        m_speedModes = p_modes;
+        m_speedUpButton = p_upButton;
+        m_speedDownButton = p_downButton;
+    }
+
+    /**
+     * @param p_curve curve applied to translation input, by magnitude (ex. {@link ResponseCurve#expo(double)})
+     */
+    public void setTranslationCurve(DoubleUnaryOperator p_curve) { m_curve.setTranslationCurve(p_curve); }
+
+    /**
+     * @param p_curve curve applied to rotation input (ex. {@link ResponseCurve#cubic()})
+     */
+    public void setRotationCurve(DoubleUnaryOperator p_curve) { m_curve.setRotationCurve(p_curve); }
+
+    /**
+     * @return the state from the last call to {@link #getCommandedState()}, without reading input
+     * or advancing the slew limiter again (ex. for telemetry)
+     */
+    public SwerveDriveState getLastCommandedState() { return m_pipeline.getState(); }
+
+    /**
+     * @return a {@link SwerveDriveState} object for use by a {@link SwerveChassis} or similar.
+     * The returned object is reused by the next call
      */
     @Override
-    @SuppressWarnings("unreachable")
     public SwerveDriveState getCommandedState() {
 
-        if (m_leftStick.getTrigger()) {
+        InputLatency.X.markCommanded();
+
+        // no X-lock while holding a heading: the driver keeps translating (ex. shooting on the move)
+        if (m_leftStick.getTrigger() && !m_headingHold.isEnabled()) {
             return SwerveDriveState.LOCKED;
         }
-          
-        ChassisSpeeds l_returnMe = new ChassisSpeeds(
-            addDeadband(m_leftStick.getY()),
-            addDeadband(m_leftStick.getX()),
-            addDeadband(m_rightStick.getX())
-        );
 
-        stolenRateLimitingCode(l_returnMe);
-
-        l_returnMe.vxMetersPerSecond *= m_maxSpeed;
-        l_returnMe.vyMetersPerSecond *= m_maxSpeed;
-        l_returnMe.omegaRadiansPerSecond *= m_maxSpeedR;
+        if (m_speedModes != null) {
+            m_scale.setMaxSpeed(m_maxSpeed * m_speedModes.update(
+                m_rightStick.getRawButton(m_speedUpButton),
+                m_rightStick.getRawButton(m_speedDownButton)
+            ));
+        }
 
-        if (m_mode == FIELD_ORIENTED)
-            l_returnMe = ChassisSpeeds.fromFieldRelativeSpeeds(
-                l_returnMe, m_rotationGetter.get()
-            );
-        
-        return new SwerveDriveState(l_returnMe);
+        // sticks are inverted: pushing forward/left gives negative values
+        return m_pipeline.run(
+            -m_leftStick.getY(),
+            -m_leftStick.getX(),
+            -m_rightStick.getX()
+        );
     }
 }
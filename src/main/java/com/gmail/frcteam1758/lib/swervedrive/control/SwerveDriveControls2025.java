@@ -1,29 +1,33 @@
 package com.gmail.frcteam1758.lib.swervedrive.control;
 
 import static com.gmail.frcteam1758.lib.enums.SwerveDriveMode.FIELD_ORIENTED;
-import java.util.function.Supplier;
+
+import java.util.function.DoubleSupplier;
+import java.util.function.DoubleUnaryOperator;
 
 import com.gmail.frcteam1758.lib.enums.SwerveDriveMode;
 import com.gmail.frcteam1758.lib.swervedrive.MaxSwerveConstants;
 import com.gmail.frcteam1758.lib.swervedrive.MaxSwerveConstants.DriveConstants;
-import com.gmail.frcteam1758.lib.util.SwerveUtils;
-import edu.wpi.first.math.MathUtil;
-import edu.wpi.first.math.filter.SlewRateLimiter;
-import edu.wpi.first.math.geometry.Rotation2d;
-import edu.wpi.first.math.kinematics.ChassisSpeeds;
-import edu.wpi.first.math.trajectory.TrapezoidProfile;
-import edu.wpi.first.util.WPIUtilJNI;
+import com.gmail.frcteam1758.lib.util.InputLatency;
+import com.gmail.frcteam1758.lib.util.ResponseCurve;
 import edu.wpi.first.wpilibj.Joystick;
 
 
 /**
- * this class does not work don't worry about it
+ * two-joystick swerve controls with snap-to-angle heading hold.
+ * <p>
+ * The left stick translates. Pushing the right stick past {@link #TARGET_THRESHOLD} points
+ * the robot in the stick's direction; a {@link HeadingController} then turns to (and holds) that
+ * heading in minimum time. The right trigger locks the wheels.
+ * <p>
+ * The gyro is read once per cycle (heading by the pipeline, rate by the heading stage)
  */
 public class SwerveDriveControls2025 implements SwerveDriveInput {
 
-    protected final Joystick m_leftStick, m_rightStick;
+    /** how far the right stick must be pushed before it changes the target heading */
+    public static final double TARGET_THRESHOLD = 0.75;
 
-    protected double maxRotVel = 1, prevRot, rotAccel = 1;
+    protected final Joystick m_leftStick, m_rightStick;
 
     protected SwerveDriveMode m_mode;
 
@@ -31,163 +35,113 @@ public class SwerveDriveControls2025 implements SwerveDriveInput {
         m_maxSpeed,
         m_maxSpeedR;
 
-    // variables for stolen code
-    @SuppressWarnings("unused") // REV has "m_currentRotation" as a field, and it works, so ...
-    private double m_currentRotation = 0.0;
-    private double m_currentTranslationDir = 0.0;
-    private double m_currentTranslationMag = 0.0;
-
-    private SlewRateLimiter m_magLimiter = new SlewRateLimiter(DriveConstants.kMagnitudeSlewRate);
-    private SlewRateLimiter m_rotLimiter = new SlewRateLimiter(DriveConstants.kRotationalSlewRate);
-    private double m_prevTime = WPIUtilJNI.now() * 1e-6;
-    
-    /** retrieves the robot's current rotation relative to the field,
+    /** retrieves the robot's current rotation relative to the field in radians,
     * for use in field-relative drive
     */
-    protected Supplier<Rotation2d> m_rotationGetter;
+    protected DoubleSupplier m_headingGetter;
+
+    /** retrieves the robot's angular velocity in rad/s, same direction as {@link #m_headingGetter} */
+    protected DoubleSupplier m_rateGetter;
 
-    protected final TrapezoidProfile profile;
+    protected final HeadingController m_headingController;
 
-    protected final double period;
+    protected final SwerveInputStages.ResponseCurve m_curve = new SwerveInputStages.ResponseCurve(
+        DoubleUnaryOperator.identity(), DoubleUnaryOperator.identity()
+    );
 
-    protected Rotation2d targetRot = Rotation2d.kZero;
+    protected final SwerveInputPipeline m_pipeline;
 
     /** gets {@code 0d}, in the case that a gyroscope is not avalible for input */
-    public static final Supplier<Rotation2d> GET_ZERO = () -> new Rotation2d();
+    public static final DoubleSupplier GET_ZERO_RADIANS = SwerveDriveControls2023.GET_ZERO_RADIANS;
 
-    public SwerveDriveControls2025(Joystick p_leftPort, Joystick p_rightPort, Supplier<Rotation2d> p_rotGetter,
-        SwerveDriveMode p_mode, double p_spd, double maxRotVel, double rotAccel, double period
+    /**
+     * @param p_leftPort translation joystick
+     * @param p_rightPort heading joystick
+     * @param p_headingGetter gets the robot's heading in radians (read every cycle, so it shouldn't allocate)
+     * @param p_rateGetter gets the robot's angular velocity in rad/s (ex. from the gyro rate)
+     * @param p_mode field or robot oriented translation
+     * @param p_spd max translation speed, in m/s
+     * @param p_maxRotVel max angular velocity, in rad/s
+     * @param p_rotAccel max angular acceleration, in rad/s^2
+     */
+    public SwerveDriveControls2025(Joystick p_leftPort, Joystick p_rightPort, DoubleSupplier p_headingGetter,
+        DoubleSupplier p_rateGetter, SwerveDriveMode p_mode, double p_spd, double p_maxRotVel, double p_rotAccel
     ) {
         m_leftStick  = p_leftPort;
         m_rightStick = p_rightPort;
 
         m_mode = p_mode;
 
-        m_rotationGetter = p_rotGetter;
+        m_headingGetter = p_headingGetter;
+        m_rateGetter = p_rateGetter;
 
         m_maxSpeed = p_spd;
-        
-        this.maxRotVel = maxRotVel;
-        this.rotAccel = rotAccel;
+        m_maxSpeedR = p_maxRotVel;
 
-        this.profile = new TrapezoidProfile(
-            new TrapezoidProfile.Constraints(maxRotVel, rotAccel)
-        );
+        m_headingController = new HeadingController(p_maxRotVel, p_rotAccel, Math.toRadians(1));
+        m_headingController.setTarget(m_headingGetter.getAsDouble());
 
-        this.period = period;
-
-        this.prevRot = m_rotationGetter.get().getRadians();
+        SwerveInputStage l_deadband = new SwerveInputStages.Deadband(MaxSwerveConstants.OIConstants.kDriveDeadband);
+        SwerveInputStage l_slew = new SwerveInputStages.PolarSlewLimit(
+            DriveConstants.kDirectionSlewRate,
+            DriveConstants.kMagnitudeSlewRate,
+            DriveConstants.kRotationalSlewRate
+        );
+        SwerveInputStage l_scale = new SwerveInputStages.Scale(m_maxSpeed, m_maxSpeedR);
+
+        // heading hold runs after scaling: it outputs rad/s, and is already rate limited
+        m_pipeline = m_mode == FIELD_ORIENTED
+            ? new SwerveInputPipeline(m_headingGetter,
+                l_deadband, m_curve, l_slew, l_scale, this::computeRotation, new SwerveInputStages.FieldRotation())
+            : new SwerveInputPipeline(m_headingGetter,
+                l_deadband, m_curve, l_slew, l_scale, this::computeRotation)
+        ;
     }
 
     /**
-     * permanently borrowed REV template code to limit slew rate
-     * @param p_speeds chassisspeeds to limit
+     * replaces the rotation input with the heading controller's output
      */
-    private void stolenRateLimitingCode(ChassisSpeeds p_speeds) {
-
-      double xSpeed = p_speeds.vxMetersPerSecond, ySpeed = p_speeds.vyMetersPerSecond, rot = p_speeds.omegaRadiansPerSecond;
-        // Convert XY to polar for rate limiting
-      double inputTranslationDir = Math.atan2(ySpeed, xSpeed);
-      double inputTranslationMag = Math.sqrt(Math.pow(xSpeed, 2) + Math.pow(ySpeed, 2));
-
-      // Calculate the direction slew rate based on an estimate of the lateral acceleration
-      double directionSlewRate;
-      if (m_currentTranslationMag != 0.0) {
-        directionSlewRate = Math.abs(DriveConstants.kDirectionSlewRate / m_currentTranslationMag);
-      } else {
-        directionSlewRate = 500.0; //some high number that means the slew rate is effectively instantaneous
-      }
-      
-
-      double currentTime = WPIUtilJNI.now() * 1e-6;
-      double elapsedTime = currentTime - m_prevTime;
-      double angleDif = SwerveUtils.AngleDifference(inputTranslationDir, m_currentTranslationDir);
-      if (angleDif < 0.45*Math.PI) {
-        m_currentTranslationDir = SwerveUtils.StepTowardsCircular(m_currentTranslationDir, inputTranslationDir, directionSlewRate * elapsedTime);
-        m_currentTranslationMag = m_magLimiter.calculate(inputTranslationMag);
-      }
-      else if (angleDif > 0.85*Math.PI) {
-        if (m_currentTranslationMag > 1e-4) { //some small number to avoid floating-point errors with equality checking
-          // keep currentTranslationDir unchanged
-          m_currentTranslationMag = m_magLimiter.calculate(0.0);
-        }
-        else {
-          m_currentTranslationDir = SwerveUtils.WrapAngle(m_currentTranslationDir + Math.PI);
-          m_currentTranslationMag = m_magLimiter.calculate(inputTranslationMag);
+    private void computeRotation(SwerveInputFrame p_frame) {
+
+        double l_x = m_rightStick.getX(), l_y = m_rightStick.getY();
+
+        if (Math.abs(l_x) > TARGET_THRESHOLD || Math.abs(l_y) > TARGET_THRESHOLD) {
+            // sticks are inverted like the translation input: forward is 0, left is +90 degrees
+            m_headingController.setTarget(Math.atan2(-l_x, -l_y));
         }
-      }
-      else {
-        m_currentTranslationDir = SwerveUtils.StepTowardsCircular(m_currentTranslationDir, inputTranslationDir, directionSlewRate * elapsedTime);
-        m_currentTranslationMag = m_magLimiter.calculate(0.0);
-      }
-      m_prevTime = currentTime;
-      
-      p_speeds.vxMetersPerSecond = m_currentTranslationMag * Math.cos(m_currentTranslationDir);
-      p_speeds.vyMetersPerSecond = m_currentTranslationMag * Math.sin(m_currentTranslationDir);
-      p_speeds.omegaRadiansPerSecond = m_rotLimiter.calculate(rot);
-
-      m_currentRotation = p_speeds.omegaRadiansPerSecond;
-    }
 
-    private double addDeadband(double x) {
-        return -MathUtil.applyDeadband(x, MaxSwerveConstants.OIConstants.kDriveDeadband);
+        p_frame.omega = m_headingController.calculate(
+            p_frame.heading,
+            m_rateGetter.getAsDouble(),
+            p_frame.dt
+        );
     }
 
+    /**
+     * @return the heading controller (ex. to set a target from code)
+     */
+    public HeadingController getHeadingController() { return m_headingController; }
+
+    /**
+     * @param p_curve curve applied to translation input, by magnitude (ex. {@link ResponseCurve#expo(double)}).
+     * Rotation comes from the heading controller, so it has no curve
+     */
+    public void setTranslationCurve(DoubleUnaryOperator p_curve) { m_curve.setTranslationCurve(p_curve); }
+
     @Override
     public SwerveDriveState getCommandedState() {
 
+        InputLatency.X.markCommanded();
+
         if (m_rightStick.getTrigger()) {
             return SwerveDriveState.LOCKED;
         }
 
-        if (
-            Math.abs(m_rightStick.getX()) > 0.75
-            ||
-            Math.abs(m_rightStick.getY()) > 0.75
-        ) {
-            this.targetRot = Rotation2d.fromRadians(
-                Math.atan(
-                    m_rightStick.getY() / m_rightStick.getX()
-                )
-                +
-                ((m_rightStick.getX() < 0)? Math.PI : 0)
-            );
-        }
-        Rotation2d deltaRot = targetRot.minus(m_rotationGetter.get());
-
-        deltaRot = Rotation2d.fromRadians((deltaRot.getRadians() + 2 * Math.PI) % (2 * Math.PI));
-
-        deltaRot = (deltaRot.getRadians() > Math.PI)? deltaRot.minus(Rotation2d.fromRadians(2 * Math.PI)) : deltaRot;
-
-        double desiredRotVel = this.profile.calculate(
-            this.period,
-            new TrapezoidProfile.State(
-                m_rotationGetter.get().getRadians(),
-                (m_rotationGetter.get().getRadians() - this.prevRot)
-            ),
-            new TrapezoidProfile.State(deltaRot.getRadians(), 0)
-        ).velocity;
-
-        
-        ChassisSpeeds l_returnMe = new ChassisSpeeds(
-            addDeadband(m_leftStick.getY()),
-            addDeadband(m_leftStick.getX()),
-            desiredRotVel
+        // rotation is replaced by computeRotation()
+        return m_pipeline.run(
+            -m_leftStick.getY(),
+            -m_leftStick.getX(),
+            0
         );
-
-        stolenRateLimitingCode(l_returnMe);
-
-        l_returnMe.vxMetersPerSecond *= m_maxSpeed;
-        l_returnMe.vyMetersPerSecond *= m_maxSpeed;
-        l_returnMe.omegaRadiansPerSecond *= m_maxSpeedR;
-
-        if (m_mode == FIELD_ORIENTED)
-            l_returnMe = ChassisSpeeds.fromFieldRelativeSpeeds(
-                l_returnMe, m_rotationGetter.get()
-            );
-        
-        return new SwerveDriveState(l_returnMe);
     }
-
-    public static final Rotation2d PIx2 = Rotation2d.fromRadians(2 * Math.PI);
 }
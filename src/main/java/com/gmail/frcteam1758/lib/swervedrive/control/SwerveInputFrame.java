@@ -0,0 +1,27 @@
+package com.gmail.frcteam1758.lib.swervedrive.control;
+
+/**
+ * the mutable working state passed through a {@link SwerveInputPipeline}.
+ * One instance is reused every cycle, so stages should only read and write its fields
+ * (never keep a reference to it)
+ */
+public class SwerveInputFrame {
+
+    /** forward speed. Starts as raw stick input, leaves the pipeline in m/s */
+    public double vx;
+
+    /** leftward speed. Starts as raw stick input, leaves the pipeline in m/s */
+    public double vy;
+
+    /** counter-clockwise speed. Starts as raw stick input, leaves the pipeline in rad/s */
+    public double omega;
+
+    /** the robot's heading in radians, read once at the start of the cycle (0 if no stage uses it) */
+    public double heading;
+
+    /** time since the previous cycle, in seconds */
+    public double dt;
+
+    /** the time this cycle started, in seconds */
+    public double timestamp;
+}
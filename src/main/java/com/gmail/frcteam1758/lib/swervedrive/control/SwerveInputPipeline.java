@@ -0,0 +1,101 @@
+package com.gmail.frcteam1758.lib.swervedrive.control;
+
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.util.WPIUtilJNI;
+
+/**
+ * runs driver input through a fixed list of {@link SwerveInputStage}s, ex.
+ * deadband -> response curve -> slew limiting -> scaling -> field rotation
+ * (see {@link SwerveInputStages}).
+ * <p>
+ * The heading is read once per cycle, and only if a stage uses it (see
+ * {@link SwerveInputStage#usesHeading()}). The same {@link SwerveInputFrame} and
+ * {@link SwerveDriveState} are reused every cycle, so running the pipeline does not
+ * allocate (as long as the stages and heading getter don't; a {@code Supplier<Rotation2d>}
+ * usually allocates, a {@link DoubleSupplier} of radians does not).
+ * <p>
+ * Because the returned state is reused, it is only valid until the next call to
+ * {@link #run(double, double, double)}
+ */
+public class SwerveInputPipeline {
+
+    protected final SwerveInputStage[] m_stages;
+
+    protected final DoubleSupplier m_headingGetter;
+
+    protected final SwerveInputFrame m_frame = new SwerveInputFrame();
+
+    protected final SwerveDriveState m_state = new SwerveDriveState();
+
+    protected double m_prevTime = WPIUtilJNI.now() * 1e-6;
+
+    /**
+     * @param p_headingGetter gets the robot's heading (called at most once per cycle)
+     * @param p_stages the stages, in the order they should be run
+     */
+    public SwerveInputPipeline(Supplier<Rotation2d> p_headingGetter, SwerveInputStage... p_stages) {
+        this(() -> p_headingGetter.get().getRadians(), p_stages);
+    }
+
+    /**
+     * @param p_headingGetter gets the robot's heading in radians (called at most once per cycle)
+     * @param p_stages the stages, in the order they should be run
+     */
+    public SwerveInputPipeline(DoubleSupplier p_headingGetter, SwerveInputStage... p_stages) {
+        m_headingGetter = p_headingGetter;
+        m_stages = p_stages;
+
+        m_state.lock = false;
+    }
+
+    /**
+     * runs one cycle
+     * @param p_x raw forward input
+     * @param p_y raw leftward input
+     * @param p_rot raw counter-clockwise input
+     * @return the commanded state (reused; see class docs)
+     */
+    public SwerveDriveState run(double p_x, double p_y, double p_rot) {
+
+        double l_now = WPIUtilJNI.now() * 1e-6;
+
+        m_frame.vx = p_x;
+        m_frame.vy = p_y;
+        m_frame.omega = p_rot;
+        m_frame.heading = usesHeading() ? m_headingGetter.getAsDouble() : 0;
+        m_frame.timestamp = l_now;
+        m_frame.dt = l_now - m_prevTime;
+
+        m_prevTime = l_now;
+
+        for (int i = 0; i < m_stages.length; ++i) {
+            m_stages[i].process(m_frame);
+        }
+
+        m_state.speeds.vxMetersPerSecond = m_frame.vx;
+        m_state.speeds.vyMetersPerSecond = m_frame.vy;
+        m_state.speeds.omegaRadiansPerSecond = m_frame.omega;
+
+        return m_state;
+    }
+
+    private boolean usesHeading() {
+        for (int i = 0; i < m_stages.length; ++i) {
+            if (m_stages[i].usesHeading()) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the state returned by the last cycle (without running another)
+     */
+    public SwerveDriveState getState() { return m_state; }
+
+    /**
+     * @return the frame as it was left by the last cycle
+     */
+    public SwerveInputFrame getFrame() { return m_frame; }
+}
@@ -0,0 +1,26 @@
+package com.gmail.frcteam1758.lib.swervedrive.control;
+
+/**
+ * one step of a {@link SwerveInputPipeline}. Modifies the {@link SwerveInputFrame} in place.
+ * <p>
+ * Stages are run every cycle, so they should not allocate.
+ * <p>
+ * A lambda (<code>f -> {...}</code>) is a valid {@link SwerveInputStage}
+ * <p>
+ * Common stages are in {@link SwerveInputStages}
+ */
+@FunctionalInterface
+public interface SwerveInputStage {
+
+    /**
+     * @param p_frame the frame to modify
+     */
+    public void process(SwerveInputFrame p_frame);
+
+    /**
+     * checked every cycle before the heading is read; if no stage uses it, the pipeline skips
+     * the read and leaves the heading at 0. Defaults to {@code true}, so lambdas always get it
+     * @return whether this stage reads {@link SwerveInputFrame#heading} this cycle
+     */
+    public default boolean usesHeading() { return true; }
+}
@@ -0,0 +1,416 @@
+package com.gmail.frcteam1758.lib.swervedrive.control;
+
+import java.util.function.DoubleSupplier;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Supplier;
+
+import com.gmail.frcteam1758.lib.util.DistanceField;
+import com.gmail.frcteam1758.lib.util.SwerveUtils;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+
+/**
+ * common {@link SwerveInputStage}s, listed in the order they are usually run
+ */
+public final class SwerveInputStages {
+
+    // prevent creation of useless instances
+    private SwerveInputStages() {}
+
+    /**
+     * zeroes small inputs on all three axes, and rescales the rest so output still
+     * starts at 0 (see {@link MathUtil#applyDeadband(double, double)})
+     */
+    public static class Deadband implements SwerveInputStage {
+
+        protected final double m_deadband;
+
+        public Deadband(double p_deadband) { m_deadband = p_deadband; }
+
+        @Override
+        public void process(SwerveInputFrame p_frame) {
+            p_frame.vx    = MathUtil.applyDeadband(p_frame.vx   , m_deadband);
+            p_frame.vy    = MathUtil.applyDeadband(p_frame.vy   , m_deadband);
+            p_frame.omega = MathUtil.applyDeadband(p_frame.omega, m_deadband);
+        }
+
+        @Override
+        public boolean usesHeading() { return false; }
+    }
+
+    /**
+     * reshapes each axis with its own curve. Translation is shaped by magnitude
+     * (so diagonal input is not distorted); rotation is shaped directly.
+     * <p>
+     * curves should map [-1, 1] to [-1, 1]
+     */
+    public static class ResponseCurve implements SwerveInputStage {
+
+        protected DoubleUnaryOperator m_translation, m_rotation;
+
+        public ResponseCurve(DoubleUnaryOperator p_translation, DoubleUnaryOperator p_rotation) {
+            m_translation = p_translation;
+            m_rotation = p_rotation;
+        }
+
+        public void setTranslationCurve(DoubleUnaryOperator p_curve) { m_translation = p_curve; }
+
+        public void setRotationCurve(DoubleUnaryOperator p_curve) { m_rotation = p_curve; }
+
+        @Override
+        public void process(SwerveInputFrame p_frame) {
+
+            double l_mag = Math.sqrt(p_frame.vx * p_frame.vx + p_frame.vy * p_frame.vy);
+
+            if (l_mag > 1e-9) {
+                double l_scale = m_translation.applyAsDouble(l_mag) / l_mag;
+
+                p_frame.vx *= l_scale;
+                p_frame.vy *= l_scale;
+            }
+
+            p_frame.omega = m_rotation.applyAsDouble(p_frame.omega);
+        }
+
+        @Override
+        public boolean usesHeading() { return false; }
+    }
+
+    /**
+     * permanently borrowed REV template code to limit slew rate. Translation is limited
+     * in polar form (direction and magnitude separately); rotation is limited directly.
+     */
+    public static class PolarSlewLimit implements SwerveInputStage {
+
+        protected final double m_directionRate, m_magnitudeRate, m_rotationRate;
+
+        protected double m_currentTranslationDir = 0.0;
+        protected double m_currentTranslationMag = 0.0;
+        protected double m_currentRotation = 0.0;
+
+        /**
+         * @param p_directionRate direction slew rate, in rad/s at full speed
+         * @param p_magnitudeRate magnitude slew rate, in (fraction of input)/s
+         * @param p_rotationRate rotation slew rate, in (fraction of input)/s
+         */
+        public PolarSlewLimit(double p_directionRate, double p_magnitudeRate, double p_rotationRate) {
+            m_directionRate = p_directionRate;
+            m_magnitudeRate = p_magnitudeRate;
+            m_rotationRate = p_rotationRate;
+        }
+
+        private double limitMagnitude(double p_target, double p_dt) {
+            return SwerveUtils.StepTowards(m_currentTranslationMag, p_target, m_magnitudeRate * p_dt);
+        }
+
+        @Override
+        public void process(SwerveInputFrame p_frame) {
+
+            double l_xSpeed = p_frame.vx, l_ySpeed = p_frame.vy, l_dt = p_frame.dt;
+
+            // Convert XY to polar for rate limiting
+            double l_inputDir = Math.atan2(l_ySpeed, l_xSpeed);
+            double l_inputMag = Math.sqrt(l_xSpeed * l_xSpeed + l_ySpeed * l_ySpeed);
+
+            // Calculate the direction slew rate based on an estimate of the lateral acceleration
+            double l_directionSlewRate;
+            if (m_currentTranslationMag != 0.0) {
+                l_directionSlewRate = Math.abs(m_directionRate / m_currentTranslationMag);
+            } else {
+                l_directionSlewRate = 500.0; //some high number that means the slew rate is effectively instantaneous
+            }
+
+            double l_angleDif = SwerveUtils.AngleDifference(l_inputDir, m_currentTranslationDir);
+            if (l_angleDif < 0.45*Math.PI) {
+                m_currentTranslationDir = SwerveUtils.StepTowardsCircular(m_currentTranslationDir, l_inputDir, l_directionSlewRate * l_dt);
+                m_currentTranslationMag = limitMagnitude(l_inputMag, l_dt);
+            }
+            else if (l_angleDif > 0.85*Math.PI) {
+                if (m_currentTranslationMag > 1e-4) { //some small number to avoid floating-point errors with equality checking
+                    // keep currentTranslationDir unchanged
+                    m_currentTranslationMag = limitMagnitude(0.0, l_dt);
+                }
+                else {
+                    m_currentTranslationDir = SwerveUtils.WrapAngle(m_currentTranslationDir + Math.PI);
+                    m_currentTranslationMag = limitMagnitude(l_inputMag, l_dt);
+                }
+            }
+            else {
+                m_currentTranslationDir = SwerveUtils.StepTowardsCircular(m_currentTranslationDir, l_inputDir, l_directionSlewRate * l_dt);
+                m_currentTranslationMag = limitMagnitude(0.0, l_dt);
+            }
+
+            m_currentRotation = SwerveUtils.StepTowards(m_currentRotation, p_frame.omega, m_rotationRate * l_dt);
+
+            p_frame.vx = m_currentTranslationMag * Math.cos(m_currentTranslationDir);
+            p_frame.vy = m_currentTranslationMag * Math.sin(m_currentTranslationDir);
+            p_frame.omega = m_currentRotation;
+        }
+
+        @Override
+        public boolean usesHeading() { return false; }
+    }
+
+    /**
+     * multiplies translation and rotation by their maximum speeds
+     */
+    public static class Scale implements SwerveInputStage {
+
+        protected double m_maxSpeed, m_maxSpeedR;
+
+        /**
+         * @param p_maxSpeed translation multiplier (m/s at full input)
+         * @param p_maxSpeedR rotation multiplier (rad/s at full input)
+         */
+        public Scale(double p_maxSpeed, double p_maxSpeedR) {
+            m_maxSpeed = p_maxSpeed;
+            m_maxSpeedR = p_maxSpeedR;
+        }
+
+        public void setMaxSpeed(double p_maxSpeed) { m_maxSpeed = p_maxSpeed; }
+
+        public void setMaxSpeedR(double p_maxSpeedR) { m_maxSpeedR = p_maxSpeedR; }
+
+        @Override
+        public void process(SwerveInputFrame p_frame) {
+            p_frame.vx *= m_maxSpeed;
+            p_frame.vy *= m_maxSpeed;
+            p_frame.omega *= m_maxSpeedR;
+        }
+
+        @Override
+        public boolean usesHeading() { return false; }
+    }
+
+    /**
+     * replaces the driver's rotation with a {@link HeadingController} turning to (and holding)
+     * a target heading, while translation is left alone (ex. aiming while driving).
+     * Should run after {@link Scale}, since it outputs rad/s. Off until {@link #enable(DoubleSupplier, DoubleSupplier)}
+     */
+    public static class HeadingHold implements SwerveInputStage {
+
+        protected final HeadingController m_controller;
+
+        protected DoubleSupplier m_targetGetter = null, m_rateGetter = null;
+
+        /**
+         * @param p_controller the controller to hold the heading with
+         */
+        public HeadingHold(HeadingController p_controller) { m_controller = p_controller; }
+
+        /**
+         * @param p_targetGetter gets the heading to hold, in radians, in the same frame as the
+         * pipeline's rotation getter (read every cycle, so it can move)
+         * @param p_rateGetter gets the robot's angular velocity, in rad/s, in the same
+         * direction as the heading
+         */
+        public void enable(DoubleSupplier p_targetGetter, DoubleSupplier p_rateGetter) {
+            // an error left over from the last hold must not count as on target
+            if (m_targetGetter == null) m_controller.reset();
+
+            m_targetGetter = p_targetGetter;
+            m_rateGetter = p_rateGetter;
+        }
+
+        public void disable() {
+            m_targetGetter = null;
+            m_controller.reset();
+        }
+
+        public boolean isEnabled() { return m_targetGetter != null; }
+
+        public HeadingController getController() { return m_controller; }
+
+        @Override
+        public void process(SwerveInputFrame p_frame) {
+            if (m_targetGetter != null) {
+                p_frame.omega = m_controller.calculate(
+                    p_frame.heading, m_rateGetter.getAsDouble(), m_targetGetter.getAsDouble(), p_frame.dt
+                );
+            }
+        }
+
+        @Override
+        public boolean usesHeading() { return m_targetGetter != null; }
+    }
+
+    /**
+     * compensates the frame's heading for actuation latency: by the time the modules act on
+     * a command, the robot has kept turning, so the heading is extrapolated by the measured
+     * angular velocity over the expected latency. Should be run just before {@link FieldRotation}.
+     * <p>
+     * Does nothing until {@link #enable(DoubleSupplier, double)} is called.
+     */
+    public static class HeadingLead implements SwerveInputStage {
+
+        protected DoubleSupplier m_rateGetter = null;
+
+        protected double m_latency = 0;
+
+        /**
+         * @param p_rateGetter gets the robot's angular velocity, in rad/s, in the same
+         * direction as the heading
+         * @param p_latency the expected time from command to actuation (ex. loop period + CAN), in seconds
+         */
+        public void enable(DoubleSupplier p_rateGetter, double p_latency) {
+            m_rateGetter = p_rateGetter;
+            m_latency = p_latency;
+        }
+
+        public void disable() { m_rateGetter = null; }
+
+        @Override
+        public void process(SwerveInputFrame p_frame) {
+            if (m_rateGetter != null) {
+                p_frame.heading += m_rateGetter.getAsDouble() * m_latency;
+            }
+        }
+
+        // only shifts the heading for the stages after it, which ask for it themselves
+        @Override
+        public boolean usesHeading() { return false; }
+    }
+
+    /**
+     * converts field-oriented translation to robot-oriented translation using the frame's
+     * heading (same as {@code ChassisSpeeds.fromFieldRelativeSpeeds}, but in place)
+     */
+    public static class FieldRotation implements SwerveInputStage {
+
+        @Override
+        public void process(SwerveInputFrame p_frame) {
+
+            double l_cos = Math.cos(p_frame.heading), l_sin = Math.sin(p_frame.heading);
+
+            double l_vx = p_frame.vx, l_vy = p_frame.vy;
+
+            p_frame.vx =  l_vx * l_cos + l_vy * l_sin;
+            p_frame.vy = -l_vx * l_sin + l_vy * l_cos;
+        }
+    }
+
+    /**
+     * removes commanded velocity toward nearby obstacles, using a precomputed {@link DistanceField}.
+     * Velocity along the field's gradient (away from obstacles) and tangent to it is kept, so the
+     * robot slides along field elements instead of stopping. Removal fades in smoothly from
+     * {@code slowZone} down to {@code clearance}, where all velocity toward the obstacle is gone.
+     * <p>
+     * Works on robot-oriented speeds (run after {@link FieldRotation}); the pose's heading converts
+     * them to the field frame and back. One grid lookup per cycle.
+     * <p>
+     * Does nothing until {@link #enable(Supplier, Supplier, double, double)} is called,
+     * or while the field or pose is {@code null}
+     */
+    public static class ObstacleAssist implements SwerveInputStage {
+
+        protected Supplier<Pose2d> m_poseGetter = null;
+
+        protected Supplier<DistanceField> m_fieldGetter = null;
+
+        protected double m_clearance, m_slowZone;
+
+        /**
+         * @param p_poseGetter gets the robot's field pose (called once per cycle; should not update odometry)
+         * @param p_fieldGetter gets the distance field (may return {@code null} while it loads)
+         * @param p_clearance distance from the robot's center to an obstacle at which no
+         * approaching velocity is allowed, in meters (ex. half the bumper width)
+         * @param p_slowZone distance at which approaching velocity starts being removed, in meters
+         */
+        public void enable(Supplier<Pose2d> p_poseGetter, Supplier<DistanceField> p_fieldGetter,
+            double p_clearance, double p_slowZone
+        ) {
+            m_poseGetter = p_poseGetter;
+            m_fieldGetter = p_fieldGetter;
+            m_clearance = p_clearance;
+            m_slowZone = p_slowZone;
+        }
+
+        public void disable() { m_poseGetter = null; }
+
+        @Override
+        public void process(SwerveInputFrame p_frame) {
+
+            if (m_poseGetter == null) return;
+
+            DistanceField l_field = m_fieldGetter.get();
+            Pose2d l_pose = m_poseGetter.get();
+
+            if (l_field == null || l_pose == null) return;
+
+            int l_idx = l_field.indexOf(l_pose.getX(), l_pose.getY());
+
+            double l_dist = l_field.distance(l_idx);
+
+            if (l_dist >= m_slowZone) return;
+
+            // 0 at the edge of the slow zone, 1 at (or inside) the clearance, smoothstep in between
+            double l_t = MathUtil.clamp((m_slowZone - l_dist) / (m_slowZone - m_clearance), 0, 1);
+            double l_strength = l_t * l_t * (3 - 2 * l_t);
+
+            double l_cos = l_pose.getRotation().getCos(), l_sin = l_pose.getRotation().getSin();
+
+            // robot frame -> field frame
+            double l_fx = p_frame.vx * l_cos - p_frame.vy * l_sin;
+            double l_fy = p_frame.vx * l_sin + p_frame.vy * l_cos;
+
+            double l_gx = l_field.gradientX(l_idx), l_gy = l_field.gradientY(l_idx);
+
+            double l_away = l_fx * l_gx + l_fy * l_gy;
+
+            if (l_away >= 0) return;
+
+            l_fx -= l_away * l_strength * l_gx;
+            l_fy -= l_away * l_strength * l_gy;
+
+            // field frame -> robot frame
+            p_frame.vx =  l_fx * l_cos + l_fy * l_sin;
+            p_frame.vy = -l_fx * l_sin + l_fy * l_cos;
+        }
+
+        // rotates by the pose's heading, not the frame's
+        @Override
+        public boolean usesHeading() { return false; }
+    }
+
+    /**
+     * discretizes the commanded speeds over one loop period (same as
+     * {@code ChassisSpeeds.discretize}, but in place), so translating while spinning
+     * follows a straight line instead of an arc. Should be run last.
+     * <p>
+     * Does nothing until {@link #enable(double)} is called.
+     */
+    public static class Discretize implements SwerveInputStage {
+
+        protected double m_period = 0;
+
+        /**
+         * @param p_period the loop period, in seconds
+         */
+        public void enable(double p_period) { m_period = p_period; }
+
+        public void disable() { m_period = 0; }
+
+        @Override
+        public void process(SwerveInputFrame p_frame) {
+
+            if (m_period <= 0) return;
+
+            // twist that produces the desired pose change over one period (see Pose2d.log)
+            double l_halfTheta = p_frame.omega * m_period / 2;
+            double l_cosMinusOne = Math.cos(2 * l_halfTheta) - 1;
+
+            double l_a = Math.abs(l_cosMinusOne) < 1e-9
+                ? 1 - (4 * l_halfTheta * l_halfTheta) / 12
+                : -(l_halfTheta * Math.sin(2 * l_halfTheta)) / l_cosMinusOne;
+
+            double l_vx = p_frame.vx, l_vy = p_frame.vy;
+
+            p_frame.vx =  l_vx * l_a + l_vy * l_halfTheta;
+            p_frame.vy = -l_vx * l_halfTheta + l_vy * l_a;
+        }
+
+        @Override
+        public boolean usesHeading() { return false; }
+    }
+}
@@ -1,11 +1,15 @@
 package com.gmail.frcteam1758.lib.swervedrive.vortex;
 
 import com.gmail.frcteam1758.lib.swervedrive.SwerveModule;
+import com.gmail.frcteam1758.lib.util.InputLatency;
+import com.gmail.frcteam1758.lib.util.SparkConfigs;
 import com.revrobotics.AbsoluteEncoder;
 import com.revrobotics.PersistMode;
 import com.revrobotics.REVLibError;
 import com.revrobotics.RelativeEncoder;
 import com.revrobotics.ResetMode;
+import com.revrobotics.sim.SparkFlexSim;
+import com.revrobotics.sim.SparkMaxSim;
 import com.revrobotics.spark.SparkClosedLoopController;
 import com.revrobotics.spark.SparkFlex;
 import com.revrobotics.spark.SparkMax;
@@ -14,10 +18,13 @@ import com.revrobotics.spark.SparkLowLevel.MotorType;
 import com.revrobotics.spark.config.SparkFlexConfig;
 import com.revrobotics.spark.config.SparkMaxConfig;
 
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.wpilibj.RobotBase;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import com.gmail.frcteam1758.lib.swervedrive.SwerveChassis;
 
@@ -49,6 +56,12 @@ public class VortexSwerveModule implements SwerveModule{
     //orientation for locked mode
     protected final SwerveModuleState lockedState;
 
+    // ideal module for simulation (null on a real robot): wheel speed and angle follow the last setpoint
+    protected final SparkFlexSim driveSim;
+    protected final SparkMaxSim  steerSim;
+
+    protected double simSpeed = 0, simAngle = 0;
+
     /**
      * Constructs a {@link VortexSwerveModule}
      * 
@@ -70,8 +83,8 @@ public class VortexSwerveModule implements SwerveModule{
         this.driveMC = new SparkFlex(pDriveCAN, MotorType.kBrushless);
         this.steerMC = new SparkMax (pSteerCan, MotorType.kBrushless);
 
-        REVLibError eD = this.driveMC.configure(pDriveCfg, ResetMode.kResetSafeParameters, PersistMode.kPersistParameters);
-        REVLibError eS = this.steerMC.configure(pDriveCfg, ResetMode.kResetSafeParameters, PersistMode.kPersistParameters);
+        REVLibError eD = SparkConfigs.configure(this.driveMC, pDriveCfg   , ResetMode.kResetSafeParameters, PersistMode.kPersistParameters);
+        REVLibError eS = SparkConfigs.configure(this.steerMC, pSteerConfig, ResetMode.kResetSafeParameters, PersistMode.kPersistParameters);
 
         if (eD != REVLibError.kOk || eS != REVLibError.kOk) {
             throw new RuntimeException("mc config error");
@@ -104,6 +117,15 @@ public class VortexSwerveModule implements SwerveModule{
             0,
             new Rotation2d(Math.atan2(pPosition.getY(),pPosition.getX()))
         );
+
+        if (RobotBase.isSimulation()) {
+            this.driveSim = new SparkFlexSim(this.driveMC, DCMotor.getNeoVortex(1));
+            this.steerSim = new SparkMaxSim (this.steerMC, DCMotor.getNeo550  (1));
+        }
+        else {
+            this.driveSim = null;
+            this.steerSim = null;
+        }
     }
 
     /**
@@ -121,16 +143,21 @@ public class VortexSwerveModule implements SwerveModule{
      * reapplys configs in case of error. (shouldn't be used)
      */
     public void reConfig() {
-        this.driveMC.configure(
-            VortexSwerveDefaults.kDriveCfg,
-            ResetMode.kResetSafeParameters,
-            PersistMode.kPersistParameters
-        );
-        this.steerMC.configure(
-            VortexSwerveDefaults.kSteerCfg,
-            ResetMode.kResetSafeParameters,
-            PersistMode.kPersistParameters
-        );
+        SparkConfigs.configure(this.driveMC, VortexSwerveDefaults.kDriveCfg, ResetMode.kResetSafeParameters, PersistMode.kPersistParameters);
+        SparkConfigs.configure(this.steerMC, VortexSwerveDefaults.kSteerCfg, ResetMode.kResetSafeParameters, PersistMode.kPersistParameters);
+    }
+
+    /**
+     * changes the drive motor's velocity PID gains without resetting or persisting anything else.
+     * The config is sent without waiting for the controller (see {@link SparkConfigs#configureAsync}),
+     * so this doesn't stall the loop when called while enabled, ex. from a dashboard tuning callback
+     */
+    public void applyDriveGains(double pP, double pI, double pD) {
+
+        SparkFlexConfig cfg = new SparkFlexConfig();
+        cfg.closedLoop.pid(pP, pI, pD);
+
+        SparkConfigs.configureAsync(this.driveMC, cfg, ResetMode.kNoResetSafeParameters, PersistMode.kNoPersistParameters);
     }
 
     /**
@@ -181,7 +208,29 @@ public class VortexSwerveModule implements SwerveModule{
         this.drivePID.setSetpoint(pState.speedMetersPerSecond, ControlType.kVelocity);
         this.steerPID.setSetpoint(pState.angle.getRadians()  , ControlType.kPosition);
 
+        if (this.driveSim != null) {
+            this.simSpeed = pState.speedMetersPerSecond;
+            this.simAngle = pState.angle.getRadians();
+        }
+
+        InputLatency.X.markSetpoint();
+
+    }
+
+    /**
+     * advances the simulated motors, as if they reached the last setpoint instantly. Does nothing
+     * on a real robot
+     * @param pDt time since the last call, in seconds
+     * @param pVbus bus voltage
+     */
+    public void simulationPeriodic(double pDt, double pVbus) {
+
+        if (this.driveSim == null) return;
+
+        this.driveSim.iterate(this.simSpeed, pVbus, pDt);
 
+        // the absolute encoder reads [0, 2pi), same as the steering loop's wrapping range
+        this.steerSim.getAbsoluteEncoderSim().setPosition(MathUtil.inputModulus(this.simAngle, 0, 2 * Math.PI));
     }
 
     @Override
@@ -0,0 +1,73 @@
+package com.gmail.frcteam1758.lib.tankdrive.control;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * a typed name for a control property (see {@link TankDriveControls#getDouble(PropertyKey)}).
+ * <p>
+ * Each key is given an integer slot in its type's storage when it is created, so looking a
+ * property up is an array index instead of a string comparison. Keys should be created once,
+ * as constants, ex.
+ * <pre>{@code public static final PropertyKey<Double> CRUISE_SPEED = PropertyKey.ofDouble("cruise_speed");}</pre>
+ *
+ * @param <T> the (boxed) type of the property. Values are stored as primitives
+ */
+public final class PropertyKey<T> {
+
+    public enum Type { BOOLEAN, INT, DOUBLE, STRING }
+
+    private static final int[] s_slotCounts = new int[Type.values().length];
+
+    private static final Map<String, PropertyKey<?>> s_byName = new HashMap<>();
+
+    public final String name;
+
+    public final Type type;
+
+    /** index of this key in its type's storage */
+    public final int slot;
+
+    private PropertyKey(String p_name, Type p_type) {
+        name = p_name;
+        type = p_type;
+        slot = s_slotCounts[p_type.ordinal()]++;
+    }
+
+    private static synchronized <T> PropertyKey<T> create(String p_name, Type p_type) {
+
+        if (s_byName.containsKey(p_name)) {
+            throw new IllegalArgumentException("property key \"" + p_name + "\" already exists");
+        }
+
+        PropertyKey<T> l_key = new PropertyKey<>(p_name, p_type);
+        s_byName.put(p_name, l_key);
+
+        return l_key;
+    }
+
+    public static PropertyKey<Boolean> ofBoolean(String p_name) { return create(p_name, Type.BOOLEAN); }
+
+    public static PropertyKey<Integer> ofInt(String p_name) { return create(p_name, Type.INT); }
+
+    public static PropertyKey<Double> ofDouble(String p_name) { return create(p_name, Type.DOUBLE); }
+
+    public static PropertyKey<String> ofString(String p_name) { return create(p_name, Type.STRING); }
+
+    /**
+     * finds a key by name, for the string-based property methods
+     * @return the key, or {@code null} if there is none with that name and type
+     */
+    public static synchronized PropertyKey<?> forName(String p_name, Type p_type) {
+        PropertyKey<?> l_key = s_byName.get(p_name);
+        return l_key != null && l_key.type == p_type ? l_key : null;
+    }
+
+    /**
+     * @return how many keys of the given type exist (one past the highest slot)
+     */
+    public static synchronized int count(Type p_type) { return s_slotCounts[p_type.ordinal()]; }
+
+    @Override
+    public String toString() { return name; }
+}
@@ -0,0 +1,58 @@
+package com.gmail.frcteam1758.lib.tankdrive.control;
+
+import java.util.Arrays;
+
+import com.gmail.frcteam1758.lib.tankdrive.control.PropertyKey.Type;
+
+/**
+ * primitive storage for control properties, indexed by {@link PropertyKey#slot}.
+ * Meant to be filled once per cycle by {@link TankDriveControls#processInputs()} and then read
+ * any number of times.
+ * <p>
+ * Properties that were never set read as {@code false}, {@code 0}, or {@code null}
+ */
+public class PropertySnapshot {
+
+    protected boolean[] m_booleans = new boolean[PropertyKey.count(Type.BOOLEAN)];
+    protected int    [] m_ints     = new int    [PropertyKey.count(Type.INT    )];
+    protected double [] m_doubles  = new double [PropertyKey.count(Type.DOUBLE )];
+    protected String [] m_strings  = new String [PropertyKey.count(Type.STRING )];
+
+    // storage grows if a key is created after this snapshot (only ever on set)
+
+    public void set(PropertyKey<Boolean> p_key, boolean p_value) {
+        if (p_key.slot >= m_booleans.length) m_booleans = Arrays.copyOf(m_booleans, p_key.slot + 1);
+        m_booleans[p_key.slot] = p_value;
+    }
+
+    public void set(PropertyKey<Integer> p_key, int p_value) {
+        if (p_key.slot >= m_ints.length) m_ints = Arrays.copyOf(m_ints, p_key.slot + 1);
+        m_ints[p_key.slot] = p_value;
+    }
+
+    public void set(PropertyKey<Double> p_key, double p_value) {
+        if (p_key.slot >= m_doubles.length) m_doubles = Arrays.copyOf(m_doubles, p_key.slot + 1);
+        m_doubles[p_key.slot] = p_value;
+    }
+
+    public void set(PropertyKey<String> p_key, String p_value) {
+        if (p_key.slot >= m_strings.length) m_strings = Arrays.copyOf(m_strings, p_key.slot + 1);
+        m_strings[p_key.slot] = p_value;
+    }
+
+    public boolean getBoolean(PropertyKey<Boolean> p_key) {
+        return p_key.slot < m_booleans.length && m_booleans[p_key.slot];
+    }
+
+    public int getInt(PropertyKey<Integer> p_key) {
+        return p_key.slot < m_ints.length ? m_ints[p_key.slot] : 0;
+    }
+
+    public double getDouble(PropertyKey<Double> p_key) {
+        return p_key.slot < m_doubles.length ? m_doubles[p_key.slot] : 0;
+    }
+
+    public String getString(PropertyKey<String> p_key) {
+        return p_key.slot < m_strings.length ? m_strings[p_key.slot] : null;
+    }
+}
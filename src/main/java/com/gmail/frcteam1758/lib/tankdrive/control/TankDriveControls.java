@@ -10,6 +10,12 @@ package com.gmail.frcteam1758.lib.tankdrive.control;
  */
 public interface TankDriveControls {
 
+    /** the current speed multiplier */
+    public static final PropertyKey<Double> SPEED_MULTIPLIER = PropertyKey.ofDouble("speed_multiplier");
+
+    /** whether forward and backward are swapped */
+    public static final PropertyKey<Boolean> INVERTED = PropertyKey.ofBoolean("inverted");
+
     /**
      * polls buttons, sticks, etc., and uses their input to operate toggles,
      * change multipliers, etc.
@@ -60,6 +66,50 @@ public interface TankDriveControls {
     public boolean getBrakes();
 
 
+    /*
+     * the methods below allow additional properties to be polled by typed key, which
+     * is an array lookup rather than a string comparison. Implementations should fill a
+     * PropertySnapshot in processInputs() and override these; the defaults fall back to
+     * the string-based methods */
+
+
+    /**
+     * gets a property of type boolean not included in the base TankDriveControls
+     * 
+     * @param key the property's key
+     * 
+     * @return a boolean representing the property
+     */
+    public default boolean getBoolean(PropertyKey<Boolean> key) { return getBooleanProperty(key.name); }
+
+    /**
+     * gets a property of type int not included in the base TankDriveControls
+     * 
+     * @param key the property's key
+     * 
+     * @return an int representing the property
+     */
+    public default int getInt(PropertyKey<Integer> key) { return getIntProperty(key.name); }
+
+    /**
+     * gets a property of type double not included in the base TankDriveControls
+     * 
+     * @param key the property's key
+     * 
+     * @return a double representing the property
+     */
+    public default double getDouble(PropertyKey<Double> key) { return getDoubleProperty(key.name); }
+
+    /**
+     * gets a property of type String not included in the base TankDriveControls
+     * 
+     * @param key the property's key
+     * 
+     * @return a String representing the property
+     */
+    public default String getString(PropertyKey<String> key) { return getStringProperty(key.name); }
+
+
     /*
      * the methods below allow additional properties to be polled,
      * even though they don't have their own method.
@@ -67,7 +117,9 @@ public interface TankDriveControls {
      * a more sophisticated control system. For example,
      * <p>
      * For Exeample, getDoubleProperty("cruise_speed") could return
-     * a cruise control speed the robot is using. */
+     * a cruise control speed the robot is using.
+     * <p>
+     * these are kept for compatibility; prefer the PropertyKey methods above */
 
 
     /**
@@ -1,6 +1,9 @@
 package com.gmail.frcteam1758.lib.tankdrive.control;
 
-import com.gmail.frcteam1758.lib.util.BoundedSet;
+import java.util.function.DoubleUnaryOperator;
+
+import com.gmail.frcteam1758.lib.util.DoubleBoundedSet;
+import com.gmail.frcteam1758.lib.util.ResponseCurve;
 
 import edu.wpi.first.wpilibj.XboxController;
 
@@ -13,32 +16,43 @@ public class TankDriveControls2023 implements TankDriveControls {
     
     protected XboxController m_ctrl;
 
-    protected BoundedSet<Double> m_speeds;
+    protected DoubleBoundedSet m_speeds;
+
+    /** the speed multiplier for this cycle, set by {@link #processInputs()} */
+    protected double m_speed;
 
     protected char m_inversion = 1;
 
     protected boolean m_brakesEnabled;
 
+    /** response curves for forward/tank input and turn input. Linear by default */
+    protected DoubleUnaryOperator
+        m_driveCurve = DoubleUnaryOperator.identity(),
+        m_turnCurve  = DoubleUnaryOperator.identity();
+
+    /** filled by {@link #processInputs()} */
+    protected final PropertySnapshot m_properties = new PropertySnapshot();
+
     /**
-     * constructs a TankDriveControls2023 from an XboxController and a BoundedSet<Double>
+     * constructs a TankDriveControls2023 from an XboxController and a DoubleBoundedSet
      * 
      * @param p_ctrl an XboxController to get input from
-     * @param p_speeds a BoundedSet<Double> to use for speed multipliers
+     * @param p_speeds a DoubleBoundedSet to use for speed multipliers
      */
-    public TankDriveControls2023(XboxController p_ctrl, BoundedSet<Double> p_speeds) {
+    public TankDriveControls2023(XboxController p_ctrl, DoubleBoundedSet p_speeds) {
         m_ctrl = p_ctrl;
         m_speeds = p_speeds;
+        m_speed = m_speeds.getRamped();
     }
 
     /**
-     * constructs a TankDriveControls2023 from an XboxController and a Double[]
+     * constructs a TankDriveControls2023 from an XboxController and a double[]
      * 
      * @param p_ctrl an XboxController to get input from
-     * @param p_speeds a Double[] to use for speed multipliers
+     * @param p_speeds a double[] to use for speed multipliers
      */
-    public TankDriveControls2023(XboxController p_ctrl, Double[] p_speeds) {
-        m_ctrl = p_ctrl;
-        m_speeds = new BoundedSet<>(p_speeds);
+    public TankDriveControls2023(XboxController p_ctrl, double[] p_speeds) {
+        this(p_ctrl, new DoubleBoundedSet(p_speeds));
     }
 
     /** constructs a TankDriveControls2023 from an XboxController,
@@ -47,8 +61,7 @@ public class TankDriveControls2023 implements TankDriveControls {
      * @param p_ctrl an XboxController to get input from
      */
     public TankDriveControls2023(XboxController p_ctrl) {
-        m_ctrl = p_ctrl;
-        m_speeds = new BoundedSet<>(new Double[] { 1.00 });
+        this(p_ctrl, new DoubleBoundedSet(1.00));
     }
 
     @Override
@@ -58,54 +71,90 @@ public class TankDriveControls2023 implements TankDriveControls {
 
         if      (m_ctrl.getLeftTriggerAxis()  > .5) m_speeds.toBeginning();
         else if (m_ctrl.getRightTriggerAxis() > .5) m_speeds.toEnd();
+
+        // stick buttons step between gears (see 2023bindings.txt); triggers still jump to either end
+        m_speed = m_speeds.update(m_ctrl.getRightStickButton(), m_ctrl.getLeftStickButton());
+
+        m_properties.set(SPEED_MULTIPLIER, m_speed);
+        m_properties.set(INVERTED, m_inversion < 0);
     }
 
     @Override
     public double getArcadeFwd()
-        { return m_ctrl.getLeftY() * m_speeds.get().doubleValue() * m_inversion; }
+        { return m_driveCurve.applyAsDouble(m_ctrl.getLeftY()) * m_speed * m_inversion; }
 
     @Override
     public double getArcadeTurn()
-        { return m_ctrl.getRightX() * m_speeds.get().doubleValue() * m_inversion; }
+        { return m_turnCurve.applyAsDouble(m_ctrl.getRightX()) * m_speed * m_inversion; }
     
     @Override
     public double getTankLeft() {
-        return (m_inversion > 0? m_ctrl.getLeftY() : m_ctrl.getRightY())
-        * m_speeds.get().doubleValue() * m_inversion;
+        return m_driveCurve.applyAsDouble(m_inversion > 0? m_ctrl.getLeftY() : m_ctrl.getRightY())
+        * m_speed * m_inversion;
     }
     
     @Override
     public double getTankRight() {
-        return (m_inversion > 0? m_ctrl.getRightY() : m_ctrl.getLeftY())
-        * m_speeds.get().doubleValue() * m_inversion;
+        return m_driveCurve.applyAsDouble(m_inversion > 0? m_ctrl.getRightY() : m_ctrl.getLeftY())
+        * m_speed * m_inversion;
     }
     
+    /**
+     * @param p_curve curve applied to forward and tank input (ex. {@link ResponseCurve#expo(double)})
+     */
+    public void setDriveCurve(DoubleUnaryOperator p_curve) { m_driveCurve = p_curve; }
+
+    /**
+     * @param p_curve curve applied to arcade turn input (ex. {@link ResponseCurve#cubic()})
+     */
+    public void setTurnCurve(DoubleUnaryOperator p_curve) { m_turnCurve = p_curve; }
+
     @Override
     public boolean getBrakes() { return m_brakesEnabled; }
 
     @Override
-    public boolean getBooleanProperty(String name) { return false; }
+    public boolean getBoolean(PropertyKey<Boolean> key) { return m_properties.getBoolean(key); }
+
+    @Override
+    public int getInt(PropertyKey<Integer> key) { return m_properties.getInt(key); }
+
+    @Override
+    public double getDouble(PropertyKey<Double> key) { return m_properties.getDouble(key); }
+
+    @Override
+    public String getString(PropertyKey<String> key) { return m_properties.getString(key); }
+
+    // string-keyed compatibility shim: resolves the name to its key, then reads the snapshot
 
+    @SuppressWarnings("unchecked")
     @Override
-    public int getIntProperty(String name) { return 0; }
+    public boolean getBooleanProperty(String name) {
+        PropertyKey<?> l_key = PropertyKey.forName(name, PropertyKey.Type.BOOLEAN);
+        return l_key != null && getBoolean((PropertyKey<Boolean>) l_key);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public int getIntProperty(String name) {
+        PropertyKey<?> l_key = PropertyKey.forName(name, PropertyKey.Type.INT);
+        return l_key != null ? getInt((PropertyKey<Integer>) l_key) : 0;
+    }
 
     /**
-     * gets the current speed multiplier.
-     * 
-     * @param name unused
-     * 
-     * @return the current speed multiplier
-     * 
-     * @apiNote this method usually accesses multiple properties,
-     * but TankDriveControls2023 only has one
-     * 
-     * @see TankDriveControls#getDoubleProperty(String)
+     * names that aren't a double key still get the speed multiplier, as they did before keys existed
+     * @see TankDriveControls#SPEED_MULTIPLIER
      */
+    @SuppressWarnings("unchecked")
     @Override
     public double getDoubleProperty(String name) {
-        return m_speeds.get().doubleValue();
+        PropertyKey<?> l_key = PropertyKey.forName(name, PropertyKey.Type.DOUBLE);
+        return getDouble(l_key != null ? (PropertyKey<Double>) l_key : SPEED_MULTIPLIER);
     }
 
+    @SuppressWarnings("unchecked")
     @Override
-    public String getStringProperty(String name) { return null; }
+    public String getStringProperty(String name) {
+        PropertyKey<?> l_key = PropertyKey.forName(name, PropertyKey.Type.STRING);
+        return l_key != null ? getString((PropertyKey<String>) l_key) : null;
+    }
 }
@@ -0,0 +1,32 @@
+package com.gmail.frcteam1758.lib.util;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+
+/**
+ * the driver station's alliance, cached so per-cycle code can read it without the
+ * {@code Optional} from {@link DriverStation#getAlliance()}.
+ * <p>
+ * Refreshed at 1 Hz by the {@link RateScheduler}, and by {@link #refresh()} (ex. on mode changes,
+ * so a match never starts on a stale value). Blue until the driver station says otherwise
+ */
+public class AllianceCache {
+
+    public static final AllianceCache X = new AllianceCache();
+
+    private volatile boolean m_red = false;
+
+    private AllianceCache() {
+        refresh();
+
+        RateScheduler.X.scheduleHz("AllianceCache.refresh", 1, this::refresh);
+    }
+
+    /** reads the alliance from the driver station now */
+    public void refresh() {
+        m_red = DriverStation.getAlliance().orElse(Alliance.Blue) == Alliance.Red;
+    }
+
+    /** @return whether we are on the red alliance, as of the last refresh */
+    public boolean isRed() { return m_red; }
+}
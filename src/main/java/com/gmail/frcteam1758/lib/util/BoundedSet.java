@@ -20,7 +20,7 @@ public class BoundedSet<T> {
 
         assert p_numTimes >= 0;
 
-        m_idx = m_idx + p_numTimes > m_items.length? m_items.length : m_idx + p_numTimes;
+        m_idx = m_idx + p_numTimes > m_items.length - 1? m_items.length - 1 : m_idx + p_numTimes;
     }
 
     /**
@@ -56,7 +56,7 @@ public class BoundedSet<T> {
      * @return the last item in the set
     */
     public T toEnd() {
-        m_idx = m_items.length;
+        m_idx = m_items.length - 1;
         return m_items[m_idx];
     }
 
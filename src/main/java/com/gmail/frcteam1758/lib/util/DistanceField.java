@@ -0,0 +1,124 @@
+package com.gmail.frcteam1758.lib.util;
+
+/**
+ * signed distance field over an occupancy grid, with a precomputed gradient.
+ * <p>
+ * Everything is computed once, at construction, into flat arrays indexed by
+ * {@code row * cols + col}; a lookup is one {@link #indexOf(double, double)} and plain array reads.
+ * <p>
+ * Distances are in meters from a cell's center to the nearest edge of a cell of the other kind
+ * (the nearest such center, less half a cell): positive in free space, negative inside obstacles. The gradient points away from obstacles
+ * (toward increasing distance) and has unit length, or is zero where it is undefined.
+ * Positions outside the grid are clamped to the nearest edge cell
+ */
+public class DistanceField {
+
+    protected final int m_cols, m_rows;
+
+    protected final double m_cellSize;
+
+    protected final double[] m_distance, m_gradX, m_gradY;
+
+    /**
+     * @param p_obstacles occupancy grid, {@code p_obstacles[row][col]}, row along y and col along x,
+     * {@code true} for obstacles (same layout as a PathPlanner navgrid)
+     * @param p_cellSize side length of one cell, in meters
+     */
+    public DistanceField(boolean[][] p_obstacles, double p_cellSize) {
+
+        m_rows = p_obstacles.length;
+        m_cols = m_rows > 0 ? p_obstacles[0].length : 0;
+        m_cellSize = p_cellSize;
+
+        int l_n = m_rows * m_cols;
+
+        m_distance = new double[l_n];
+        m_gradX = new double[l_n];
+        m_gradY = new double[l_n];
+
+        computeDistances(p_obstacles);
+        computeGradient();
+    }
+
+    // brute force nearest-opposite-cell search. Navgrids are a few thousand cells,
+    // so this takes milliseconds, once, at boot
+    private void computeDistances(boolean[][] p_obstacles) {
+
+        for (int r = 0; r < m_rows; ++r) {
+            for (int c = 0; c < m_cols; ++c) {
+
+                boolean l_blocked = p_obstacles[r][c];
+
+                int l_best = Integer.MAX_VALUE;
+
+                for (int r2 = 0; r2 < m_rows; ++r2) {
+                    for (int c2 = 0; c2 < m_cols; ++c2) {
+                        if (p_obstacles[r2][c2] != l_blocked) {
+                            int l_dr = r2 - r, l_dc = c2 - c;
+                            l_best = Math.min(l_best, l_dr * l_dr + l_dc * l_dc);
+                        }
+                    }
+                }
+
+                // no opposite cell at all: treat as far away. Otherwise measure to the opposite
+                // cell's edge, not its center (exact along rows and columns, close on diagonals)
+                double l_dist = l_best == Integer.MAX_VALUE
+                    ? Math.hypot(m_rows, m_cols) * m_cellSize
+                    : (Math.sqrt(l_best) - 0.5) * m_cellSize;
+
+                m_distance[r * m_cols + c] = l_blocked ? -l_dist : l_dist;
+            }
+        }
+    }
+
+    // central differences (one-sided at the edges), normalized
+    private void computeGradient() {
+
+        for (int r = 0; r < m_rows; ++r) {
+            for (int c = 0; c < m_cols; ++c) {
+
+                int l_c0 = Math.max(c - 1, 0), l_c1 = Math.min(c + 1, m_cols - 1);
+                int l_r0 = Math.max(r - 1, 0), l_r1 = Math.min(r + 1, m_rows - 1);
+
+                double l_gx = l_c1 == l_c0 ? 0 : (m_distance[r * m_cols + l_c1] - m_distance[r * m_cols + l_c0]) / (l_c1 - l_c0);
+                double l_gy = l_r1 == l_r0 ? 0 : (m_distance[l_r1 * m_cols + c] - m_distance[l_r0 * m_cols + c]) / (l_r1 - l_r0);
+
+                double l_mag = Math.hypot(l_gx, l_gy);
+
+                if (l_mag > 1e-9) {
+                    m_gradX[r * m_cols + c] = l_gx / l_mag;
+                    m_gradY[r * m_cols + c] = l_gy / l_mag;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the index of the cell containing ({@code p_x}, {@code p_y}), clamped to the grid
+     */
+    public int indexOf(double p_x, double p_y) {
+
+        int l_c = (int) Math.floor(p_x / m_cellSize);
+        int l_r = (int) Math.floor(p_y / m_cellSize);
+
+        l_c = Math.min(Math.max(l_c, 0), m_cols - 1);
+        l_r = Math.min(Math.max(l_r, 0), m_rows - 1);
+
+        return l_r * m_cols + l_c;
+    }
+
+    /** @return the signed distance to the nearest obstacle edge at cell {@code p_idx}, in meters */
+    public double distance(int p_idx) { return m_distance[p_idx]; }
+
+    /** @return the x part of the unit gradient (away from obstacles) at cell {@code p_idx} */
+    public double gradientX(int p_idx) { return m_gradX[p_idx]; }
+
+    /** @return the y part of the unit gradient (away from obstacles) at cell {@code p_idx} */
+    public double gradientY(int p_idx) { return m_gradY[p_idx]; }
+
+    public int getCols() { return m_cols; }
+
+    public int getRows() { return m_rows; }
+
+    public double getCellSize() { return m_cellSize; }
+}
@@ -0,0 +1,133 @@
+package com.gmail.frcteam1758.lib.util;
+
+import edu.wpi.first.util.WPIUtilJNI;
+
+/**
+ * a primitive {@link BoundedSet} of doubles, for use as a gear selector (ex. speed multipliers).
+ * <p>
+ * {@link #update(boolean, boolean)} steps up or down once per button press (edge detected),
+ * and optionally ramps the output toward the selected gear instead of jumping
+ */
+public class DoubleBoundedSet {
+
+    protected final double[] m_items;
+
+    protected int m_idx;
+
+    /** the ramped output; equals the selected item when ramping is off */
+    protected double m_value;
+
+    /** output units per second, or infinity for no ramp */
+    protected double m_rampRate = Double.POSITIVE_INFINITY;
+
+    protected boolean m_prevUp, m_prevDown;
+
+    protected double m_prevTime = WPIUtilJNI.now() * 1e-6;
+
+    /**
+     * constructs a DoubleBoundedSet starting at the first item
+     * @param p_items the gears, in order. Must not be empty
+     */
+    public DoubleBoundedSet(double... p_items) {
+
+        if (p_items.length == 0) throw new IllegalArgumentException("DoubleBoundedSet needs at least one item");
+
+        m_items = p_items.clone();
+        m_value = m_items[0];
+    }
+
+    /**
+     * makes changes between gears ramp instead of jumping
+     * @param p_rate output units per second
+     */
+    public DoubleBoundedSet setRampRate(double p_rate) {
+        m_rampRate = p_rate;
+        return this;
+    }
+
+    /**
+     * steps up or down on the rising edge of each input and advances the ramp.
+     * Should be called exactly once per cycle
+     * @param p_up whether the step up button is held
+     * @param p_down whether the step down button is held
+     * @return the (ramped) output
+     */
+    public double update(boolean p_up, boolean p_down) {
+
+        if (p_up   && !m_prevUp  ) increase(1);
+        if (p_down && !m_prevDown) decrease(1);
+
+        m_prevUp = p_up;
+        m_prevDown = p_down;
+
+        double l_now = WPIUtilJNI.now() * 1e-6;
+
+        m_value = SwerveUtils.StepTowards(m_value, m_items[m_idx], m_rampRate * (l_now - m_prevTime));
+
+        m_prevTime = l_now;
+
+        return m_value;
+    }
+
+    /**
+     * attempts to increase the target index
+     *
+     * @param p_numTimes how much to increase
+     */
+    public void increase(int p_numTimes) {
+
+        assert p_numTimes >= 0;
+
+        m_idx = Math.min(m_idx + p_numTimes, m_items.length - 1);
+        snapIfNoRamp();
+    }
+
+    /**
+     * attempts to decrease the target index
+     *
+     * @param p_numTimes how much to decrease
+     */
+    public void decrease(int p_numTimes) {
+
+        assert p_numTimes >= 0;
+
+        m_idx = Math.max(m_idx - p_numTimes, 0);
+        snapIfNoRamp();
+    }
+
+    /**
+     * sets the target index to zero and returns the first item in the set
+     *
+     * @return the first item in the set
+    */
+    public double toBeginning() {
+        m_idx = 0;
+        snapIfNoRamp();
+        return m_items[m_idx];
+    }
+
+    /**
+     * sets the target index to the end and returns the last item in the set
+     *
+     * @return the last item in the set
+    */
+    public double toEnd() {
+        m_idx = m_items.length - 1;
+        snapIfNoRamp();
+        return m_items[m_idx];
+    }
+
+    private void snapIfNoRamp() {
+        if (m_rampRate == Double.POSITIVE_INFINITY) m_value = m_items[m_idx];
+    }
+
+    /** gets the item at the target index */
+    public double get() { return m_items[m_idx]; }
+
+    /** gets the ramped output (see {@link #setRampRate(double)}) */
+    public double getRamped() { return m_value; }
+
+    public int getIndex() { return m_idx; }
+
+    public int size() { return m_items.length; }
+}
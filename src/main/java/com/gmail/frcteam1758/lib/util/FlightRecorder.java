@@ -0,0 +1,158 @@
+package com.gmail.frcteam1758.lib.util;
+
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * in-memory ring buffer of the last few seconds of loop timings, written to a CSV file
+ * when a cycle overruns.
+ * <p>
+ * Each row is one cycle: its start time, the period since the previous cycle, the work time,
+ * and the time of every {@link LoopProfiler} entry (blank if it did not run that cycle).
+ * Recording is array writes only; the buffer is copied and written on a background thread
+ * only when a dump is triggered (at most once per {@link #DUMP_COOLDOWN}).
+ * <p>
+ * Main-thread only
+ */
+public class FlightRecorder {
+
+    public static final FlightRecorder X = new FlightRecorder();
+
+    /** number of cycles kept (5 s at 50 Hz) */
+    public static final int CYCLES = 250;
+
+    /** number of profiler entries kept per cycle */
+    public static final int MAX_ENTRIES = 32;
+
+    /** minimum time between dumps, in seconds */
+    public static final double DUMP_COOLDOWN = 10;
+
+    private static final int TIME = 0, PERIOD = 1, WORK = 2, FIRST_ENTRY = 3;
+
+    private static final int STRIDE = FIRST_ENTRY + MAX_ENTRIES;
+
+    protected final double[] m_buffer = new double[CYCLES * STRIDE];
+
+    /** next row to write */
+    protected int m_head = 0;
+
+    protected int m_count = 0;
+
+    protected boolean m_enabled = false, m_inCycle = false;
+
+    protected double m_thresholdMs = 20;
+
+    protected Path m_dir = Path.of(".");
+
+    protected long m_cycleStart = 0, m_prevCycleStart = 0;
+
+    protected long m_lastDump = Long.MIN_VALUE / 2;
+
+    private FlightRecorder() {}
+
+    /**
+     * @param p_enabled whether to record
+     * @param p_thresholdMs work time that triggers a dump, in ms
+     * @param p_dir where dumps are written
+     */
+    public void configure(boolean p_enabled, double p_thresholdMs, Path p_dir) {
+        m_enabled = p_enabled;
+        m_thresholdMs = p_thresholdMs;
+        m_dir = p_dir;
+    }
+
+    /** call at the start of each cycle */
+    public void beginCycle() {
+
+        if (!m_enabled) return;
+
+        m_prevCycleStart = m_cycleStart;
+        m_cycleStart = System.nanoTime();
+        m_inCycle = true;
+
+        int l_row = m_head * STRIDE;
+
+        Arrays.fill(m_buffer, l_row, l_row + STRIDE, Double.NaN);
+
+        m_buffer[l_row + TIME] = m_cycleStart * 1e-9;
+        m_buffer[l_row + PERIOD] = m_prevCycleStart == 0 ? Double.NaN : (m_cycleStart - m_prevCycleStart) * 1e-6;
+    }
+
+    /**
+     * records one {@link LoopProfiler} entry's time for the current cycle
+     * (called by {@link LoopProfiler#record(int, long)})
+     */
+    public void set(int p_entry, double p_ms) {
+        if (m_inCycle && p_entry < MAX_ENTRIES) m_buffer[m_head * STRIDE + FIRST_ENTRY + p_entry] = p_ms;
+    }
+
+    /** call at the end of each cycle; dumps the buffer if the cycle overran */
+    public void endCycle() {
+
+        if (!m_inCycle) return;
+
+        m_inCycle = false;
+
+        long l_now = System.nanoTime();
+        double l_work = (l_now - m_cycleStart) * 1e-6;
+
+        m_buffer[m_head * STRIDE + WORK] = l_work;
+
+        m_head = (m_head + 1) % CYCLES;
+        m_count = Math.min(m_count + 1, CYCLES);
+
+        if (l_work > m_thresholdMs && (l_now - m_lastDump) * 1e-9 > DUMP_COOLDOWN) {
+            m_lastDump = l_now;
+            dump();
+        }
+    }
+
+    /** writes the buffer, oldest cycle first, on a background thread */
+    public void dump() {
+
+        // snapshot in order, so the main thread can keep writing
+        double[] l_rows = new double[m_count * STRIDE];
+        int l_start = (m_head - m_count + CYCLES) % CYCLES;
+
+        for (int i = 0; i < m_count; ++i) {
+            System.arraycopy(m_buffer, ((l_start + i) % CYCLES) * STRIDE, l_rows, i * STRIDE, STRIDE);
+        }
+
+        int l_entries = Math.min(LoopProfiler.X.size(), MAX_ENTRIES);
+        String[] l_names = new String[l_entries];
+        for (int i = 0; i < l_entries; ++i) l_names[i] = LoopProfiler.X.getName(i);
+
+        Path l_file = m_dir.resolve("overrun-%d.csv".formatted(System.currentTimeMillis()));
+
+        Thread l_writer = new Thread(() -> write(l_file, l_rows, l_names), "flight-recorder-writer");
+        l_writer.setDaemon(true);
+        l_writer.start();
+    }
+
+    private static void write(Path p_file, double[] p_rows, String[] p_names) {
+
+        try (PrintWriter l_out = new PrintWriter(Files.newBufferedWriter(p_file))) {
+
+            l_out.print("time_s,period_ms,work_ms");
+            for (String l_name : p_names) l_out.print("," + l_name);
+            l_out.println();
+
+            for (int r = 0; r < p_rows.length / STRIDE; ++r) {
+
+                int l_row = r * STRIDE;
+
+                for (int c = 0; c < FIRST_ENTRY + p_names.length; ++c) {
+                    if (c > 0) l_out.print(',');
+                    double l_v = p_rows[l_row + c];
+                    if (!Double.isNaN(l_v)) l_out.print(l_v);
+                }
+                l_out.println();
+            }
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+}
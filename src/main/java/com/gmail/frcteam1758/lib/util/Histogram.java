@@ -0,0 +1,76 @@
+package com.gmail.frcteam1758.lib.util;
+
+/**
+ * fixed-bucket histogram of non-negative samples. Recording never allocates,
+ * so it is safe to use every loop.
+ * <p>
+ * Percentiles are reported as the upper edge of the bucket they fall in, so
+ * they are only as precise as the bucket width. Samples past the last bucket
+ * are counted in an overflow bucket (and still tracked by {@link #getMax()}).
+ */
+public class Histogram {
+
+    protected final double m_bucketWidth;
+
+    protected final long[] m_counts;
+
+    protected long m_total;
+
+    protected double m_max, m_sum;
+
+    /**
+     * @param p_bucketWidth width of each bucket, in whatever unit samples are recorded in
+     * @param p_numBuckets number of buckets (not counting the overflow bucket)
+     */
+    public Histogram(double p_bucketWidth, int p_numBuckets) {
+        m_bucketWidth = p_bucketWidth;
+        m_counts = new long[p_numBuckets + 1];
+    }
+
+    /** adds a sample */
+    public void record(double p_value) {
+
+        int l_idx = (int)(p_value / m_bucketWidth);
+
+        if (l_idx < 0) l_idx = 0;
+        else if (l_idx >= m_counts.length) l_idx = m_counts.length - 1;
+
+        ++m_counts[l_idx];
+        ++m_total;
+        m_sum += p_value;
+
+        if (p_value > m_max) m_max = p_value;
+    }
+
+    /**
+     * @param p_fraction the percentile, from 0 to 1 (ex. 0.95 for p95)
+     * @return the upper edge of the bucket containing that percentile, or 0 if empty
+     */
+    public double getPercentile(double p_fraction) {
+
+        if (m_total == 0) return 0;
+
+        long l_target = (long)Math.ceil(p_fraction * m_total);
+        long l_seen = 0;
+
+        for (int i = 0; i < m_counts.length - 1; ++i) {
+            l_seen += m_counts[i];
+            if (l_seen >= l_target) return (i + 1) * m_bucketWidth;
+        }
+        return m_max;
+    }
+
+    public double getMax() { return m_max; }
+
+    public double getMean() { return m_total == 0 ? 0 : m_sum / m_total; }
+
+    public long getCount() { return m_total; }
+
+    /** clears all samples */
+    public void reset() {
+        for (int i = 0; i < m_counts.length; ++i) m_counts[i] = 0;
+        m_total = 0;
+        m_sum = 0;
+        m_max = 0;
+    }
+}
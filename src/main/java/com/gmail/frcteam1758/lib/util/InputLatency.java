@@ -0,0 +1,146 @@
+package com.gmail.frcteam1758.lib.util;
+
+import edu.wpi.first.hal.DriverStationJNI;
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.util.WPIUtilJNI;
+
+/**
+ * measures how long driver input takes to reach the motor controllers.
+ * <p>
+ * A background thread timestamps every new DriverStation packet; the drive code marks when
+ * the input is turned into a command, when the chassis starts running it, and when the module
+ * setpoints are sent. Timestamps are {@link WPIUtilJNI#now()} (the FPGA clock on a roboRIO).
+ * <p>
+ * stages:
+ *  - command:  DS packet arrived -> {@code getCommandedState()}
+ *  - run:      {@code getCommandedState()} -> {@code SwerveChassis.run()} entry
+ *  - setpoint: {@code SwerveChassis.run()} entry -> last module setpoint sent
+ *  - total:    DS packet arrived -> last module setpoint sent
+ * <p>
+ * each stage is published to "latency/input/&lt;stage&gt;" as {p50, p95, max} in ms,
+ * at {@link #PUBLISH_PERIOD} (the histograms are cleared after each publish).
+ * Everything except the DS timestamp is main-thread only
+ */
+public class InputLatency {
+
+    public static final InputLatency X = new InputLatency();
+
+    public static final double PUBLISH_PERIOD = 1.0;
+
+    private static final String[] STAGES = {"command", "run", "setpoint", "total"};
+
+    private static final int COMMAND = 0, RUN = 1, SETPOINT = 2, TOTAL = 3;
+
+    protected final Histogram[] m_histograms = new Histogram[STAGES.length];
+
+    protected final DoubleArrayPublisher[] m_publishers = new DoubleArrayPublisher[STAGES.length];
+
+    protected final double[] m_out = new double[3];
+
+    /** when the last DS packet arrived, in microseconds (written by the DS thread) */
+    protected volatile long m_dsTime = 0;
+
+    protected long m_commandTime, m_runTime, m_setpointTime;
+
+    protected boolean m_commandPending = false;
+
+    protected long m_lastPublish = 0;
+
+    protected Thread m_dsThread;
+
+    private InputLatency() {
+
+        NetworkTable l_table = NetworkTableInstance.getDefault().getTable("latency").getSubTable("input");
+
+        for (int i = 0; i < STAGES.length; ++i) {
+            // 0.5 ms buckets up to 100 ms
+            m_histograms[i] = new Histogram(0.5, 200);
+            m_publishers[i] = l_table.getDoubleArrayTopic(STAGES[i]).publish();
+        }
+    }
+
+    /**
+     * starts timestamping DriverStation packets. Calling it more than once does nothing.
+     */
+    public synchronized void start() {
+
+        if (m_dsThread != null) return;
+
+        m_dsThread = new Thread(this::watchDriverStation, "ds-latency");
+        m_dsThread.setDaemon(true);
+        m_dsThread.start();
+    }
+
+    private void watchDriverStation() {
+
+        int l_event = WPIUtilJNI.createEvent(false, false);
+
+        DriverStationJNI.provideNewDataEventHandle(l_event);
+
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WPIUtilJNI.waitForObject(l_event);
+                m_dsTime = WPIUtilJNI.now();
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            DriverStationJNI.removeNewDataEventHandle(l_event);
+            WPIUtilJNI.destroyEvent(l_event);
+        }
+    }
+
+    /** call when driver input is turned into a command */
+    public void markCommanded() {
+        m_commandTime = WPIUtilJNI.now();
+        m_commandPending = true;
+    }
+
+    /** call on entry to the chassis' run method */
+    public void markRun() { m_runTime = WPIUtilJNI.now(); }
+
+    /** call after a module's setpoints are sent */
+    public void markSetpoint() { m_setpointTime = WPIUtilJNI.now(); }
+
+    /**
+     * records the marks since the last call (if they came from driver input), then publishes
+     * if {@link #PUBLISH_PERIOD} has passed. Call after every module has been given its setpoint
+     */
+    public void record() {
+
+        long l_ds = m_dsTime;
+
+        if (m_commandPending && l_ds != 0 && l_ds <= m_commandTime) {
+            m_histograms[COMMAND ].record((m_commandTime  - l_ds         ) * 1e-3);
+            m_histograms[RUN     ].record((m_runTime      - m_commandTime) * 1e-3);
+            m_histograms[SETPOINT].record((m_setpointTime - m_runTime    ) * 1e-3);
+            m_histograms[TOTAL   ].record((m_setpointTime - l_ds         ) * 1e-3);
+        }
+        m_commandPending = false;
+
+        long l_now = WPIUtilJNI.now();
+
+        if ((l_now - m_lastPublish) * 1e-6 < PUBLISH_PERIOD) return;
+
+        m_lastPublish = l_now;
+
+        for (int i = 0; i < STAGES.length; ++i) {
+
+            Histogram l_h = m_histograms[i];
+
+            if (l_h.getCount() == 0) continue;
+
+            m_out[0] = l_h.getPercentile(0.50);
+            m_out[1] = l_h.getPercentile(0.95);
+            m_out[2] = l_h.getMax();
+
+            m_publishers[i].set(m_out);
+
+            l_h.reset();
+        }
+    }
+}
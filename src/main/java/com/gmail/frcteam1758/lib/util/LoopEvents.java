@@ -0,0 +1,109 @@
+package com.gmail.frcteam1758.lib.util;
+
+import java.nio.file.Path;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+
+/**
+ * Java Flight Recorder events for the robot loop, and a switch to record them to a file.
+ * <p>
+ * While recording is off, {@link #isEnabled()} is {@code false} and callers should not create
+ * events at all, so instrumented code costs one field read:
+ * <pre>{@code
+ * LoopEvents.Periodic e = LoopEvents.isEnabled() ? new LoopEvents.Periodic() : null;
+ * if (e != null) e.begin();
+ * ...
+ * if (e != null) { e.name = "Drive"; e.commit(); }
+ * }</pre>
+ * Recordings are written to {@code <dir>/loop-<time>.jfr} when recording is turned off
+ */
+public final class LoopEvents {
+
+    // prevent creation of useless instances
+    private LoopEvents() {}
+
+    private static volatile boolean s_enabled = false;
+
+    private static Recording s_recording = null;
+
+    /** one run of {@code CommandScheduler.run()} */
+    @Name("frc.SchedulerCycle") @Label("Scheduler Cycle") @Category({"FRC", "Loop"})
+    public static class SchedulerCycle extends Event {}
+
+    /** one subsystem periodic or command execute */
+    @Name("frc.Periodic") @Label("Periodic") @Category({"FRC", "Loop"})
+    public static class Periodic extends Event {
+        @Label("Name") public String name;
+    }
+
+    /** one vision pose estimate */
+    @Name("frc.VisionEstimate") @Label("Vision Estimate") @Category({"FRC", "Vision"})
+    public static class VisionEstimate extends Event {
+        @Label("Succeeded") public boolean succeeded;
+    }
+
+    /** one vision measurement checked for fusion into the pose estimator */
+    @Name("frc.PoseFusion") @Label("Pose Fusion") @Category({"FRC", "Vision"})
+    public static class PoseFusion extends Event {
+        @Label("Result") public String result;
+    }
+
+    /** one motor controller configure call (blocking CAN traffic) */
+    @Name("frc.CanConfigure") @Label("CAN Configure") @Category({"FRC", "CAN"})
+    public static class CanConfigure extends Event {
+        @Label("Device ID") public int deviceId;
+        @Label("Error") public String error;
+    }
+
+    /**
+     * @return whether events should be created (recording is on)
+     */
+    public static boolean isEnabled() { return s_enabled; }
+
+    /**
+     * starts or stops recording. Stopping writes the recording on a background thread
+     * @param p_enabled whether to record
+     * @param p_dir where recordings are written
+     */
+    public static synchronized void setEnabled(boolean p_enabled, Path p_dir) {
+
+        if (p_enabled == s_enabled) return;
+
+        if (p_enabled) {
+
+            s_recording = new Recording();
+            s_recording.setName("robot-loop");
+            s_recording.setToDisk(true);
+
+            s_recording.enable(SchedulerCycle.class);
+            s_recording.enable(Periodic.class);
+            s_recording.enable(VisionEstimate.class);
+            s_recording.enable(PoseFusion.class);
+            s_recording.enable(CanConfigure.class);
+
+            try {
+                s_recording.setDestination(p_dir.resolve("loop-%d.jfr".formatted(System.currentTimeMillis())));
+            }
+            catch (Exception e) {
+                e.printStackTrace();
+            }
+
+            s_recording.start();
+            s_enabled = true;
+        }
+        else {
+            s_enabled = false;
+
+            Recording l_recording = s_recording;
+            s_recording = null;
+
+            Thread l_writer = new Thread(l_recording::close, "jfr-writer");
+            l_writer.setDaemon(true);
+            l_writer.start();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.gmail.frcteam1758.lib.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.StringArrayPublisher;
+
+/**
+ * times named pieces of the main loop (subsystem periodics, command executes, ...), to find
+ * what causes loop overruns.
+ * <p>
+ * Each entry keeps a fixed-bucket {@link Histogram} of its run times and its worst case ever.
+ * Recording is two {@link System#nanoTime()} calls and a histogram increment, so profiling
+ * can stay on during matches. See {@link ProfiledSubsystem} and {@link ProfiledCommand}.
+ * <p>
+ * {@link #publish()} writes each entry to "profiler/&lt;name&gt;" as {p50, p95, max, worst}
+ * in ms, and the {@link #TOP_N} slowest entries (by max since the last publish) to
+ * "profiler/top", at {@link #PUBLISH_PERIOD}. Main-thread only
+ */
+public class LoopProfiler {
+
+    public static final LoopProfiler X = new LoopProfiler();
+
+    public static final double PUBLISH_PERIOD = 1.0;
+
+    public static final int TOP_N = 5;
+
+    protected final NetworkTable m_table = NetworkTableInstance.getDefault().getTable("profiler");
+
+    protected final Map<String, Integer> m_ids = new HashMap<>();
+
+    protected final List<String> m_names = new ArrayList<>();
+    protected final List<Histogram> m_histograms = new ArrayList<>();
+    protected final List<DoubleArrayPublisher> m_publishers = new ArrayList<>();
+
+    /** worst time ever seen per entry, in ms */
+    protected double[] m_worst = new double[0];
+
+    /** entry ids, sorted by max on each publish */
+    protected int[] m_ranking = new int[0];
+
+    protected final StringArrayPublisher m_topPublisher = m_table.getStringArrayTopic("top").publish();
+
+    protected final double[] m_out = new double[4];
+
+    protected long m_lastPublish = System.nanoTime();
+
+    private LoopProfiler() {}
+
+    /**
+     * gets the id of an entry, creating it if needed. Should be called once, at construction
+     * (entries with the same name share an id)
+     */
+    public int register(String p_name) {
+
+        Integer l_id = m_ids.get(p_name);
+
+        if (l_id != null) return l_id;
+
+        int l_new = m_names.size();
+
+        m_ids.put(p_name, l_new);
+        m_names.add(p_name);
+        // 50 us buckets up to 20 ms
+        m_histograms.add(new Histogram(0.05, 400));
+        m_publishers.add(m_table.getDoubleArrayTopic(p_name).publish());
+
+        m_worst = Arrays.copyOf(m_worst, l_new + 1);
+        m_ranking = Arrays.copyOf(m_ranking, l_new + 1);
+        m_ranking[l_new] = l_new;
+
+        return l_new;
+    }
+
+    /**
+     * records one run of an entry
+     * @param p_id from {@link #register(String)}
+     * @param p_startNanos {@link System#nanoTime()} from just before the run
+     */
+    public void record(int p_id, long p_startNanos) {
+
+        double l_ms = (System.nanoTime() - p_startNanos) * 1e-6;
+
+        m_histograms.get(p_id).record(l_ms);
+
+        if (l_ms > m_worst[p_id]) m_worst[p_id] = l_ms;
+
+        FlightRecorder.X.set(p_id, l_ms);
+    }
+
+    public String getName(int p_id) { return m_names.get(p_id); }
+
+    /** @return the number of entries */
+    public int size() { return m_names.size(); }
+
+    /**
+     * publishes (and clears) the histograms if {@link #PUBLISH_PERIOD} has passed.
+     * Cheap to call every loop.
+     */
+    public void publish() {
+
+        long l_now = System.nanoTime();
+
+        if ((l_now - m_lastPublish) * 1e-9 < PUBLISH_PERIOD) return;
+
+        m_lastPublish = l_now;
+
+        int l_n = m_names.size();
+
+        for (int i = 0; i < l_n; ++i) {
+
+            Histogram l_h = m_histograms.get(i);
+
+            m_out[0] = l_h.getPercentile(0.50);
+            m_out[1] = l_h.getPercentile(0.95);
+            m_out[2] = l_h.getMax();
+            m_out[3] = m_worst[i];
+
+            m_publishers.get(i).set(m_out);
+        }
+
+        // insertion sort by max; there are only a handful of entries
+        for (int i = 1; i < l_n; ++i) {
+
+            int l_id = m_ranking[i];
+            double l_max = m_histograms.get(l_id).getMax();
+
+            int j = i - 1;
+            while (j >= 0 && m_histograms.get(m_ranking[j]).getMax() < l_max) {
+                m_ranking[j + 1] = m_ranking[j];
+                --j;
+            }
+            m_ranking[j + 1] = l_id;
+        }
+
+        String[] l_top = new String[Math.min(TOP_N, l_n)];
+
+        for (int i = 0; i < l_top.length; ++i) {
+            int l_id = m_ranking[i];
+            l_top[i] = "%s: max %.2f ms, p95 %.2f ms".formatted(
+                m_names.get(l_id), m_histograms.get(l_id).getMax(), m_histograms.get(l_id).getPercentile(0.95)
+            );
+        }
+
+        m_topPublisher.set(l_top);
+
+        for (int i = 0; i < l_n; ++i) m_histograms.get(i).reset();
+    }
+}
@@ -0,0 +1,34 @@
+package com.gmail.frcteam1758.lib.util;
+
+import edu.wpi.first.wpilibj2.command.Command;
+
+/**
+ * a {@link Command} whose execute is timed by the {@link LoopProfiler}.
+ * Subclasses put their execute code in {@link #profiledExecute()}
+ * (all instances of a class share one profiler entry)
+ */
+public abstract class ProfiledCommand extends Command {
+
+    private final int m_profileId = LoopProfiler.X.register(getClass().getSimpleName() + ".execute");
+
+    @Override
+    public final void execute() {
+
+        LoopEvents.Periodic l_event = LoopEvents.isEnabled() ? new LoopEvents.Periodic() : null;
+        if (l_event != null) l_event.begin();
+
+        long l_start = System.nanoTime();
+
+        profiledExecute();
+
+        LoopProfiler.X.record(m_profileId, l_start);
+
+        if (l_event != null) {
+            l_event.name = LoopProfiler.X.getName(m_profileId);
+            l_event.commit();
+        }
+    }
+
+    /** called repeatedly while scheduled, like {@link Command#execute()} */
+    public void profiledExecute() {}
+}
@@ -0,0 +1,33 @@
+package com.gmail.frcteam1758.lib.util;
+
+import edu.wpi.first.wpilibj2.command.SubsystemBase;
+
+/**
+ * a {@link SubsystemBase} whose periodic is timed by the {@link LoopProfiler}.
+ * Subclasses put their periodic code in {@link #profiledPeriodic()}
+ */
+public abstract class ProfiledSubsystem extends SubsystemBase {
+
+    private final int m_profileId = LoopProfiler.X.register(getName() + ".periodic");
+
+    @Override
+    public final void periodic() {
+
+        LoopEvents.Periodic l_event = LoopEvents.isEnabled() ? new LoopEvents.Periodic() : null;
+        if (l_event != null) l_event.begin();
+
+        long l_start = System.nanoTime();
+
+        profiledPeriodic();
+
+        LoopProfiler.X.record(m_profileId, l_start);
+
+        if (l_event != null) {
+            l_event.name = LoopProfiler.X.getName(m_profileId);
+            l_event.commit();
+        }
+    }
+
+    /** called once per scheduler run, like {@link SubsystemBase#periodic()} */
+    public void profiledPeriodic() {}
+}
@@ -0,0 +1,89 @@
+package com.gmail.frcteam1758.lib.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.wpi.first.wpilibj.TimedRobot;
+
+/**
+ * runs work at its own rate on top of {@link TimedRobot#addPeriodic(Runnable, double, double)},
+ * ex. telemetry at 10 Hz instead of every 20 ms loop.
+ * <p>
+ * Tasks slower than the main loop are given phase offsets that land between main loop cycles
+ * and rotate through them, so slow tasks don't all run in the same cycle. Every task is
+ * timed by the {@link LoopProfiler} under its name.
+ * <p>
+ * Tasks can be registered at any time (ex. from subsystem constructors); ones registered before
+ * {@link #attach(TimedRobot)} are added when it is called. All tasks run on the main robot thread
+ */
+public class RateScheduler {
+
+    public static final RateScheduler X = new RateScheduler();
+
+    private record Task(Runnable task, double period, double offset) {}
+
+    protected final List<Task> m_pending = new ArrayList<>();
+
+    protected TimedRobot m_robot = null;
+
+    /** how many slow tasks have been given offsets, for spreading them across cycles */
+    protected int m_slowTasks = 0;
+
+    private RateScheduler() {}
+
+    /**
+     * starts running tasks on {@code p_robot}. Should be called once, from the robot's constructor
+     */
+    public synchronized void attach(TimedRobot p_robot) {
+
+        if (m_robot != null) return;
+
+        m_robot = p_robot;
+
+        for (Task l_task : m_pending) m_robot.addPeriodic(l_task.task(), l_task.period(), l_task.offset());
+
+        m_pending.clear();
+    }
+
+    /**
+     * registers work to run every {@code p_period} seconds
+     * @param p_name profiler name
+     * @param p_period seconds between runs (ex. 0.1 for 10 Hz)
+     * @param p_task the work
+     */
+    public synchronized void schedule(String p_name, double p_period, Runnable p_task) {
+
+        int l_id = LoopProfiler.X.register(p_name);
+
+        Runnable l_timed = () -> {
+            long l_start = System.nanoTime();
+            p_task.run();
+            LoopProfiler.X.record(l_id, l_start);
+        };
+
+        double l_loop = TimedRobot.kDefaultPeriod;
+
+        // half a loop after the main loop starts; slow tasks also rotate through the cycles
+        // inside their period
+        double l_offset = l_loop / 2;
+
+        if (p_period > l_loop) {
+            int l_cycles = (int) Math.round(p_period / l_loop);
+            l_offset += (m_slowTasks++ % l_cycles) * l_loop;
+        }
+        else {
+            l_offset = p_period / 2;
+        }
+
+        Task l_task = new Task(l_timed, p_period, l_offset);
+
+        if (m_robot != null) m_robot.addPeriodic(l_task.task(), l_task.period(), l_task.offset());
+        else m_pending.add(l_task);
+    }
+
+    /**
+     * registers work to run at {@code p_hz}
+     * @see #schedule(String, double, Runnable)
+     */
+    public void scheduleHz(String p_name, double p_hz, Runnable p_task) { schedule(p_name, 1.0 / p_hz, p_task); }
+}
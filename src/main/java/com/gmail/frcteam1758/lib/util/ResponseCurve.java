@@ -0,0 +1,61 @@
+package com.gmail.frcteam1758.lib.util;
+
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * a driver response curve (ex. expo or cubic) sampled into a lookup table once, at construction.
+ * Applying it is one table lookup and a linear interpolation, so curves that use
+ * {@link Math#pow(double, double)} cost the same as a linear one.
+ * <p>
+ * Curves are odd-symmetric: only [0, 1] is sampled, and negative input is mirrored.
+ * Input outside [-1, 1] is clamped
+ */
+public class ResponseCurve implements DoubleUnaryOperator {
+
+    /** number of table intervals over [0, 1] */
+    public static final int RESOLUTION = 256;
+
+    protected final double[] m_table = new double[RESOLUTION + 1];
+
+    /**
+     * @param p_curve the curve to sample. Should map [0, 1] to [0, 1]; only called here
+     */
+    public ResponseCurve(DoubleUnaryOperator p_curve) {
+        for (int i = 0; i <= RESOLUTION; ++i) {
+            m_table[i] = p_curve.applyAsDouble((double) i / RESOLUTION);
+        }
+    }
+
+    @Override
+    public double applyAsDouble(double p_x) {
+
+        double l_pos = Math.min(Math.abs(p_x), 1) * RESOLUTION;
+
+        int l_i = (int) l_pos;
+
+        if (l_i >= RESOLUTION) return Math.copySign(m_table[RESOLUTION], p_x);
+
+        double l_frac = l_pos - l_i;
+
+        return Math.copySign(m_table[l_i] + (m_table[l_i + 1] - m_table[l_i]) * l_frac, p_x);
+    }
+
+    /** output = input */
+    public static ResponseCurve linear() { return new ResponseCurve(x -> x); }
+
+    /**
+     * blend between linear and cubic
+     * @param p_expo 0 for linear, 1 for cubic
+     */
+    public static ResponseCurve expo(double p_expo) {
+        return new ResponseCurve(x -> (1 - p_expo) * x + p_expo * x * x * x);
+    }
+
+    /** output = input^3 */
+    public static ResponseCurve cubic() { return new ResponseCurve(x -> x * x * x); }
+
+    /** output = input^{@code p_exponent} */
+    public static ResponseCurve power(double p_exponent) {
+        return new ResponseCurve(x -> Math.pow(x, p_exponent));
+    }
+}
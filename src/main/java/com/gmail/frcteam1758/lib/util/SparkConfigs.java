@@ -0,0 +1,60 @@
+package com.gmail.frcteam1758.lib.util;
+
+import com.revrobotics.PersistMode;
+import com.revrobotics.REVLibError;
+import com.revrobotics.ResetMode;
+import com.revrobotics.spark.SparkBase;
+import com.revrobotics.spark.config.SparkBaseConfig;
+
+/**
+ * applies configs to Spark motor controllers. Every configure call should go through here, so
+ * each one shows up in a recording as a {@link LoopEvents.CanConfigure}.
+ * <p>
+ * {@link #configure} blocks on CAN until the controller responds (tens of ms per device), so it
+ * belongs in constructors. While the robot may be enabled (ex. dashboard tuning callbacks), use
+ * {@link #configureAsync}
+ */
+public final class SparkConfigs {
+
+    // prevent creation of useless instances
+    private SparkConfigs() {}
+
+    /**
+     * same as {@link SparkBase#configure(SparkBaseConfig, ResetMode, PersistMode)}, recorded as a
+     * {@link LoopEvents.CanConfigure}. Blocks until the controller responds
+     * @return the error reported by the controller
+     */
+    public static REVLibError configure(SparkBase p_mc, SparkBaseConfig p_cfg, ResetMode p_reset, PersistMode p_persist) {
+
+        LoopEvents.CanConfigure l_event = LoopEvents.isEnabled() ? new LoopEvents.CanConfigure() : null;
+        if (l_event != null) l_event.begin();
+
+        REVLibError l_err = p_mc.configure(p_cfg, p_reset, p_persist);
+
+        if (l_event != null) {
+            l_event.deviceId = p_mc.getDeviceId();
+            l_event.error = l_err.name();
+            l_event.commit();
+        }
+        return l_err;
+    }
+
+    /**
+     * same as {@link SparkBase#configureAsync(SparkBaseConfig, ResetMode, PersistMode)}: queues the
+     * config and returns without waiting for the controller, so it is safe to call from the main loop.
+     * Failures are not reported back
+     */
+    public static void configureAsync(SparkBase p_mc, SparkBaseConfig p_cfg, ResetMode p_reset, PersistMode p_persist) {
+
+        LoopEvents.CanConfigure l_event = LoopEvents.isEnabled() ? new LoopEvents.CanConfigure() : null;
+        if (l_event != null) l_event.begin();
+
+        REVLibError l_err = p_mc.configureAsync(p_cfg, p_reset, p_persist);
+
+        if (l_event != null) {
+            l_event.deviceId = p_mc.getDeviceId();
+            l_event.error = l_err.name();
+            l_event.commit();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.gmail.frcteam1758.lib.util;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.networktables.DoubleEntry;
+import edu.wpi.first.networktables.NetworkTableEvent;
+import edu.wpi.first.networktables.NetworkTableInstance;
+
+/**
+ * a double that can be changed from the dashboard through NetworkTables.
+ * <p>
+ * The NT topic is looked up once, at construction. After that, an NT listener keeps a
+ * plain field up to date, so {@link #get()} is just a field read and is safe to call
+ * every loop from hot code.
+ * <p>
+ * Callbacks registered with {@link #onChange(DoubleConsumer)} are <i>not</i> run on the NT
+ * thread; they are run by {@link #applyChanges()}, which should be called once per loop
+ * from the main robot thread (ex. in {@code Robot.robotPeriodic()}).
+ * <p>
+ * Example:
+ * <code>
+ * public static final Tunable kP = new Tunable("tune/drive", "kP", 0.04);
+ * </code>
+ */
+public class Tunable implements DoubleSupplier {
+
+    private static final ArrayList<Tunable> ALL = new ArrayList<>();
+
+    protected final DoubleEntry m_entry;
+
+    protected final ArrayList<DoubleConsumer> m_callbacks = new ArrayList<>();
+
+    protected volatile double m_value;
+
+    protected volatile boolean m_changed = false;
+
+    /**
+     * constructs a {@link Tunable}, publishing {@code p_default} if the topic has no value yet
+     * @param p_table the table path, ex. "tune/drive"
+     * @param p_key the key within the table
+     * @param p_default the starting value
+     */
+    public Tunable(String p_table, String p_key, double p_default) {
+
+        NetworkTableInstance l_nt = NetworkTableInstance.getDefault();
+
+        m_entry = l_nt.getTable(p_table).getDoubleTopic(p_key).getEntry(p_default);
+        m_entry.setDefault(p_default);
+
+        m_value = m_entry.get();
+
+        l_nt.addListener(
+            m_entry,
+            EnumSet.of(NetworkTableEvent.Kind.kValueAll),
+            e_event -> {
+                m_value = e_event.valueData.value.getDouble();
+                m_changed = true;
+            }
+        );
+
+        synchronized (ALL) { ALL.add(this); }
+    }
+
+    /** @return the current value */
+    public double get() { return m_value; }
+
+    @Override
+    public double getAsDouble() { return m_value; }
+
+    /**
+     * sets the value locally (and on the dashboard)
+     * @param p_value the new value
+     */
+    public void set(double p_value) { m_entry.set(p_value); }
+
+    /**
+     * registers a callback to run (from {@link #applyChanges()}) when the value changes
+     * @param p_callback receives the new value
+     * @return this {@link Tunable}, to allow chaining
+     */
+    public Tunable onChange(DoubleConsumer p_callback) {
+        m_callbacks.add(p_callback);
+        return this;
+    }
+
+    /**
+     * runs the callbacks of every {@link Tunable} that changed since the last call.
+     * Should be called once per loop from the main robot thread.
+     */
+    public static void applyChanges() {
+
+        synchronized (ALL) {
+            for (int i = 0; i < ALL.size(); ++i) {
+
+                Tunable l_t = ALL.get(i);
+
+                if (!l_t.m_changed) continue;
+
+                l_t.m_changed = false;
+
+                double l_value = l_t.m_value;
+
+                for (int j = 0; j < l_t.m_callbacks.size(); ++j) {
+                    l_t.m_callbacks.get(j).accept(l_value);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.gmail.frcteam1758.lib.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * registry of field zones (polygons and circles), compiled into a uniform grid where
+ * each cell stores a bitmask of the zones containing its center.
+ * <p>
+ * Zones are given in blue-origin field coordinates. {@link #compile(double, double, double)}
+ * builds a second grid for red, with every zone mirrored through the field's center
+ * (the field is rotationally symmetric). After compiling, {@link #lookup(double, double, boolean)}
+ * is one array read no matter how many zones there are.
+ * <p>
+ * Up to 64 zones; accuracy is one cell
+ */
+public class ZoneIndex {
+
+    private interface Shape { boolean contains(double p_x, double p_y); }
+
+    protected final List<Shape> m_shapes = new ArrayList<>();
+
+    protected final List<String> m_names = new ArrayList<>();
+
+    protected long[] m_blue = new long[0], m_red = new long[0];
+
+    protected int m_cols, m_rows;
+
+    protected double m_cellSize = 1;
+
+    /**
+     * adds a polygon zone
+     * @param p_name the zone's name (for telemetry)
+     * @param p_xy vertices, in order, as {@code x0, y0, x1, y1, ...}
+     * @return the zone's id, for {@link #contains(long, int)}
+     */
+    public int addPolygon(String p_name, double... p_xy) {
+
+        if (p_xy.length < 6 || p_xy.length % 2 != 0) {
+            throw new IllegalArgumentException("polygon zone \"" + p_name + "\" needs at least 3 x, y pairs");
+        }
+
+        double[] l_xy = p_xy.clone();
+
+        // even-odd ray casting
+        return add(p_name, (x, y) -> {
+            boolean l_in = false;
+            for (int i = 0, j = l_xy.length - 2; i < l_xy.length; j = i, i += 2) {
+                double l_xi = l_xy[i], l_yi = l_xy[i + 1], l_xj = l_xy[j], l_yj = l_xy[j + 1];
+                if ((l_yi > y) != (l_yj > y) && x < (l_xj - l_xi) * (y - l_yi) / (l_yj - l_yi) + l_xi) {
+                    l_in = !l_in;
+                }
+            }
+            return l_in;
+        });
+    }
+
+    /**
+     * adds a circular zone
+     * @param p_name the zone's name (for telemetry)
+     * @return the zone's id, for {@link #contains(long, int)}
+     */
+    public int addCircle(String p_name, double p_x, double p_y, double p_radius) {
+        return add(p_name, (x, y) -> Math.hypot(x - p_x, y - p_y) <= p_radius);
+    }
+
+    private int add(String p_name, Shape p_shape) {
+
+        if (m_shapes.size() >= Long.SIZE) throw new IllegalStateException("ZoneIndex holds at most 64 zones");
+
+        m_shapes.add(p_shape);
+        m_names.add(p_name);
+
+        return m_shapes.size() - 1;
+    }
+
+    /**
+     * builds the blue and red grids. Must be called after all zones are added, before lookups
+     * @param p_fieldLength field size along x, in meters
+     * @param p_fieldWidth field size along y, in meters
+     * @param p_cellSize grid resolution, in meters
+     */
+    public void compile(double p_fieldLength, double p_fieldWidth, double p_cellSize) {
+
+        int l_cols = (int) Math.ceil(p_fieldLength / p_cellSize);
+        int l_rows = (int) Math.ceil(p_fieldWidth  / p_cellSize);
+
+        long[] l_blue = new long[l_cols * l_rows], l_red = new long[l_cols * l_rows];
+
+        for (int r = 0; r < l_rows; ++r) {
+            for (int c = 0; c < l_cols; ++c) {
+
+                double l_x = (c + 0.5) * p_cellSize, l_y = (r + 0.5) * p_cellSize;
+
+                for (int z = 0; z < m_shapes.size(); ++z) {
+                    if (m_shapes.get(z).contains(l_x, l_y)) {
+                        l_blue[r * l_cols + c] |= 1L << z;
+                    }
+                    if (m_shapes.get(z).contains(p_fieldLength - l_x, p_fieldWidth - l_y)) {
+                        l_red[r * l_cols + c] |= 1L << z;
+                    }
+                }
+            }
+        }
+
+        m_cols = l_cols;
+        m_rows = l_rows;
+        m_cellSize = p_cellSize;
+        m_blue = l_blue;
+        m_red = l_red;
+    }
+
+    /**
+     * @return the bitmask of zones containing ({@code p_x}, {@code p_y}), or {@code 0} off the field
+     */
+    public long lookup(double p_x, double p_y, boolean p_red) {
+
+        int l_c = (int) Math.floor(p_x / m_cellSize);
+        int l_r = (int) Math.floor(p_y / m_cellSize);
+
+        if (l_c < 0 || l_c >= m_cols || l_r < 0 || l_r >= m_rows) return 0;
+
+        return (p_red ? m_red : m_blue)[l_r * m_cols + l_c];
+    }
+
+    /**
+     * @return whether {@code p_mask} (from {@link #lookup(double, double, boolean)}) includes zone {@code p_zone}
+     */
+    public static boolean contains(long p_mask, int p_zone) { return (p_mask & (1L << p_zone)) != 0; }
+
+    public String getName(int p_zone) { return m_names.get(p_zone); }
+
+    public int size() { return m_shapes.size(); }
+}
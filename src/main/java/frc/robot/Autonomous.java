@@ -38,12 +38,12 @@ public class Autonomous {
             e.printStackTrace();
         }
 
-        NamedCommands.registerCommand("intake.idleup"  , IntakeCommand.IDLE_UP  .get());
-        NamedCommands.registerCommand("intake.idledown", IntakeCommand.IDLE_DOWN.get());
-        NamedCommands.registerCommand("intake.run"     , IntakeCommand.RUN      .get());
+        NamedCommands.registerCommand("intake.idleup"  , IntakeCommand.IDLE_UP  );
+        NamedCommands.registerCommand("intake.idledown", IntakeCommand.IDLE_DOWN);
+        NamedCommands.registerCommand("intake.run"     , IntakeCommand.RUN      );
 
-        NamedCommands.registerCommand("shooter.shoot", ShooterCommand.SHOOT.get());
-        NamedCommands.registerCommand("shooter.prep" , ShooterCommand.PREP .get());
+        NamedCommands.registerCommand("shooter.shoot", ShooterCommand.SHOOT);
+        NamedCommands.registerCommand("shooter.prep" , ShooterCommand.PREP );
 
         SmartDashboard.putData("Auto:", autoChooser = AutoBuilder.buildAutoChooser());
     }
@@ -8,4 +8,9 @@ public class Constants {
         kWheelBaseX = Units.inchesToMeters(25),
         kWheelBaseY = Units.inchesToMeters(24);
     ;
+
+    public static final double
+        kLoopPeriod = 0.02,
+        kCanLatency = 0.01 // roughly one status frame
+    ;
 }
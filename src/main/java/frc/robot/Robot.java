@@ -4,32 +4,111 @@
 
 package frc.robot;
 
-import edu.wpi.first.wpilibj.Joystick;
+import java.nio.file.Path;
+
+import com.gmail.frcteam1758.lib.util.AllianceCache;
+import com.gmail.frcteam1758.lib.util.FlightRecorder;
+import com.gmail.frcteam1758.lib.util.InputLatency;
+import com.gmail.frcteam1758.lib.util.LoopEvents;
+import com.gmail.frcteam1758.lib.util.LoopProfiler;
+import com.gmail.frcteam1758.lib.util.RateScheduler;
+import com.gmail.frcteam1758.lib.util.Tunable;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotBase;
 import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
-import frc.robot.commands.IntakeCommand;
-import frc.robot.commands.ShooterCommand;
+import edu.wpi.first.wpilibj2.command.Commands;
+import edu.wpi.first.wpilibj2.command.button.CommandJoystick;
+import edu.wpi.first.wpilibj2.command.button.Trigger;
+import frc.robot.commands.SuperstructureCommand;
 import frc.robot.commands.TeleopDriveCommand;
 import frc.robot.subsystems.DriveSubsystem;
 import frc.robot.subsystems.IntakeSubsystem;
 import frc.robot.subsystems.NavSubsystem;
 import frc.robot.subsystems.ShooterSubsystem;
+import frc.robot.subsystems.navdeps.FieldZones;
+import frc.robot.subsystems.navdeps.NavGrid;
+import frc.robot.subsystems.shooterdeps.ShotMap;
+import frc.robot.subsystems.visiondeps.FieldLayout;
 
 public class Robot extends TimedRobot {
 
-    @SuppressWarnings("unused")
-    private final Joystick
-        lctrl = new Joystick(0),
-        rctrl = new Joystick(1)
+    private final CommandJoystick
+        lctrl = new CommandJoystick(0),
+        rctrl = new CommandJoystick(1)
+    ;
+
+    // intake/shooter coordination in teleop (autonomous uses the individual commands)
+    private SuperstructureCommand superstructure;
+
+    // the whole scheduler run, for comparison with the per-subsystem/command entries
+    private final int schedulerProfileId = LoopProfiler.X.register("CommandScheduler.run");
+
+    // post-mortem diagnostics, switchable from the dashboard (1 = on)
+    private static final Path DIAGNOSTICS_DIR = RobotBase.isReal() ? Path.of("/home/lvuser") : Path.of(".");
+
+    private final Tunable
+        jfrEnabled            = new Tunable("tune/diagnostics", "jfr"            , 0 ),
+        flightRecorderEnabled = new Tunable("tune/diagnostics", "flight_recorder", 1 ),
+        overrunThresholdMs    = new Tunable("tune/diagnostics", "overrun_ms"     , 20)
     ;
 
     public Robot() {
+        // parse the AprilTag layout, navgrid and shot map while everything else boots
+        FieldLayout.X.startLoading();
+        NavGrid.X.startLoading();
+        ShotMap.X.startLoading();
+
+        // timestamp DS packets for input-to-actuation latency
+        InputLatency.X.start();
+
         DriveSubsystem.X.register();
         ShooterSubsystem.X.register();
         IntakeSubsystem.X.register();
         NavSubsystem  .X.register();
 
         NavSubsystem.X.zeroAngle();
+
+        this.bindControls();
+
+        this.jfrEnabled.onChange(v -> this.applyDiagnostics());
+        this.flightRecorderEnabled.onChange(v -> this.applyDiagnostics());
+        this.overrunThresholdMs.onChange(v -> this.applyDiagnostics());
+        this.applyDiagnostics();
+
+        // start running the multi-rate work registered by the subsystems (telemetry etc.)
+        RateScheduler.X.attach(this);
+    }
+
+    private void applyDiagnostics() {
+        LoopEvents.setEnabled(this.jfrEnabled.get() > 0.5, DIAGNOSTICS_DIR);
+        FlightRecorder.X.configure(this.flightRecorderEnabled.get() > 0.5, this.overrunThresholdMs.get(), DIAGNOSTICS_DIR);
+    }
+
+    /**
+     * driver buttons. Bound once; the scheduler polls them, and every binding reuses the
+     * same command instance. Intake and shooter requests go through the superstructure, which
+     * decides what can run at the same time
+     */
+    private void bindControls() {
+
+        Trigger teleop = new Trigger(DriverStation::isTeleopEnabled);
+
+        // spin up early in the shooting zone (or on request)
+        Trigger spinUp = this.lctrl.button(2).or(FieldZones.X.in(FieldZones.X.SHOOTING).and(teleop));
+
+        this.superstructure = new SuperstructureCommand(this.rctrl.trigger(), this.lctrl.trigger(), spinUp);
+
+        // aim at the (moving) shot while the trigger is held; translation stays with the driver
+        this.lctrl.trigger().whileTrue(Commands.startEnd(DriveSubsystem.X::startAiming, DriveSubsystem.X::stopAiming));
+
+        this.rctrl.button(3).onTrue(Commands.runOnce(this.superstructure::stowIntake));
+
+        // drop the intake where fuel is picked up
+        FieldZones.X.in(FieldZones.X.NEUTRAL).or(FieldZones.X.in(FieldZones.X.DEPOT))
+            .and(teleop)
+            .onTrue(Commands.runOnce(this.superstructure::deployIntake));
     }
 
     @Override
@@ -42,27 +121,23 @@ public class Robot extends TimedRobot {
     @Override
     public void robotPeriodic() {
 
-        if (lctrl.getTriggerPressed()) {
-            ShooterCommand.SHOOT.get().schedule();
-        }
-        else if (lctrl.getRawButtonPressed(2)) {
-            ShooterCommand.PREP.get().schedule();
-        }
-        else if (lctrl.getTriggerReleased()) {
-            ShooterCommand.IDLE.get().schedule();
-        }
-        
-        if (rctrl.getTriggerPressed()) {
-            IntakeCommand.RUN.get().schedule();
-        }
-        else if (rctrl.getTriggerReleased()) {
-            IntakeCommand.IDLE_DOWN.get().schedule();
-        }
-        else if (rctrl.getRawButtonPressed(3)) {
-            IntakeCommand.IDLE_UP.get().schedule();
-        }
+        FlightRecorder.X.beginCycle();
+
+        // apply anything changed from the dashboard since the last loop
+        Tunable.applyChanges();
 
+        LoopEvents.SchedulerCycle event = LoopEvents.isEnabled() ? new LoopEvents.SchedulerCycle() : null;
+        if (event != null) event.begin();
+
+        long start = System.nanoTime();
         CommandScheduler.getInstance().run();
+        LoopProfiler.X.record(this.schedulerProfileId, start);
+
+        if (event != null) event.commit();
+
+        LoopProfiler.X.publish();
+
+        FlightRecorder.X.endCycle();
     }
 
     @Override
@@ -76,6 +151,8 @@ public class Robot extends TimedRobot {
 
     @Override
     public void autonomousInit() {
+        AllianceCache.X.refresh();
+
         Autonomous.autoChooser.getSelected().schedule();
     }
 
@@ -87,9 +164,12 @@ public class Robot extends TimedRobot {
 
     @Override
     public void teleopInit() {
+        AllianceCache.X.refresh();
+
         CommandScheduler.getInstance().cancelAll();
 
         TeleopDriveCommand.X.schedule();
+        this.superstructure.schedule();
     }
 
     @Override
@@ -98,6 +178,7 @@ public class Robot extends TimedRobot {
     @Override
     public void teleopExit() {
         TeleopDriveCommand.X.cancel();
+        this.superstructure.cancel();
     }
 
     @Override
@@ -1,36 +1,44 @@
 package frc.robot.commands;
 
-import java.util.function.Supplier;
+import java.util.function.DoubleSupplier;
+
+import com.gmail.frcteam1758.lib.util.ProfiledCommand;
+import com.gmail.frcteam1758.lib.util.Tunable;
 
-import edu.wpi.first.wpilibj2.command.Command;
 import frc.robot.subsystems.IntakeSubsystem;
 
-public class IntakeCommand extends Command {
+public class IntakeCommand extends ProfiledCommand {
 
     private final boolean d;
-    private final double  v;
+    private final DoubleSupplier v;
 
-    public static final double RUN_VOLT = 4;
+    public static final Tunable RUN_VOLT = new Tunable("tune/intake", "run_volts", 4);
 
-    public static final Supplier<IntakeCommand>
-        RUN       = () -> new IntakeCommand(true , RUN_VOLT),
-        IDLE_DOWN = () -> new IntakeCommand(true , 0     ),
-        IDLE_UP   = () -> new IntakeCommand(false, 0     )
+    // created once and reused: bound to triggers in Robot and shared with Autonomous
+    public static final IntakeCommand
+        RUN       = new IntakeCommand(true , RUN_VOLT),
+        IDLE_DOWN = new IntakeCommand(true , () -> 0),
+        IDLE_UP   = new IntakeCommand(false, () -> 0)
     ;
 
-    private IntakeCommand(boolean d, double v) {
+    private IntakeCommand(boolean d, DoubleSupplier v) {
         this.d = d;
         this.v = v;
 
         this.addRequirements(IntakeSubsystem.X);
     }
 
+    /**
+     * @return whether this command holds the intake down
+     */
+    public boolean deploys() { return this.d; }
+
     @Override
     public void initialize() {}
 
     @Override
-    public void execute() {
-        IntakeSubsystem.X.run(this.d, this.v);
+    public void profiledExecute() {
+        IntakeSubsystem.X.run(this.d, this.v.getAsDouble());
     }
 
     @Override
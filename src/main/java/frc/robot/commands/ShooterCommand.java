@@ -1,42 +1,79 @@
 package frc.robot.commands;
 
-import java.util.function.Supplier;
+import java.util.function.DoubleSupplier;
 
-import edu.wpi.first.wpilibj2.command.Command;
+import com.gmail.frcteam1758.lib.util.ProfiledCommand;
+import com.gmail.frcteam1758.lib.util.Tunable;
+
+import frc.robot.subsystems.DriveSubsystem;
 import frc.robot.subsystems.ShooterSubsystem;
+import frc.robot.subsystems.shooterdeps.ShotSolver;
+
+public class ShooterCommand extends ProfiledCommand{
 
-public class ShooterCommand extends Command{
+    private final DoubleSupplier s, f, b;
 
-    private double s, f, b;
+    // whether s comes from the shot solver (and so does the feed delay)
+    private final boolean mapped;
 
-    public static final double
-        SHOOT_VOLT = 8,
-        FEED_VOLT  = 7,
-        BELT_VOLT = 2
+    public static final Tunable
+        FEED_VOLT  = new Tunable("tune/shooter", "feed_volts" , 7),
+        BELT_VOLT  = new Tunable("tune/shooter", "belt_volts" , 2)
     ;
 
-    public static final Supplier<ShooterCommand>
-        SHOOT = () -> new ShooterCommand(SHOOT_VOLT, FEED_VOLT, BELT_VOLT),
-        PREP  = () -> new ShooterCommand(SHOOT_VOLT, 0, 0),
-        IDLE  = () -> new ShooterCommand(0, 0, 0)
+    private static final DoubleSupplier ZERO = () -> 0;
+
+    private static final DoubleSupplier MAPPED_RPM = ShotSolver.X::getRpm;
+
+    // created once and reused: bound to triggers in Robot and shared with Autonomous
+    public static final ShooterCommand
+        SHOOT = new ShooterCommand(MAPPED_RPM, FEED_VOLT, BELT_VOLT),
+        PREP  = new ShooterCommand(MAPPED_RPM, ZERO, ZERO),
+        IDLE  = new ShooterCommand(ZERO, ZERO, ZERO)
     ;
 
-    private ShooterCommand(double s, double f, double b) {
+    private ShooterCommand(DoubleSupplier s, DoubleSupplier f, DoubleSupplier b) {
         this.s = s;
         this.f = f;
         this.b = b;
 
+        this.mapped = s == MAPPED_RPM;
+
         this.addRequirements(ShooterSubsystem.X);
     }
 
-    @Override
-    public void initialize() {
-        this.addRequirements(ShooterSubsystem.X);
+    /**
+     * holds game pieces until the flywheels are at speed (and again after each shot), and while
+     * the drive is aiming, until the heading is on target too
+     * @param feedDelay how long the shooter should have been ready, in seconds
+     * @return whether game pieces can be fed into the shooter now
+     */
+    public static boolean canFeed(double feedDelay) {
+        boolean aimed = !DriveSubsystem.X.isAiming() || DriveSubsystem.X.isAimed();
+        return aimed && ShooterSubsystem.X.readyFor(feedDelay);
     }
 
+    /**
+     * @return whether this command feeds game pieces (as opposed to only spinning the shooter)
+     */
+    public boolean feeds() { return this.f != ZERO; }
+
+    @Override
+    public void initialize() {}
+
     @Override
-    public void execute() {
-        ShooterSubsystem.X.run(this.s, this.f, this.b);
+    public void profiledExecute() {
+
+        ShooterSubsystem shooter = ShooterSubsystem.X;
+
+        double feedDelay = this.mapped ? ShotSolver.X.getFeedDelay() : 0;
+
+        if (canFeed(feedDelay)) {
+            shooter.run(this.s.getAsDouble(), this.f.getAsDouble(), this.b.getAsDouble());
+        }
+        else {
+            shooter.run(this.s.getAsDouble(), 0, 0);
+        }
     }
 
     @Override
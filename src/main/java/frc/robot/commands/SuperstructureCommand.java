@@ -0,0 +1,187 @@
+package frc.robot.commands;
+
+import java.util.function.BooleanSupplier;
+
+import com.gmail.frcteam1758.lib.util.ProfiledCommand;
+import com.gmail.frcteam1758.lib.util.RateScheduler;
+import com.gmail.frcteam1758.lib.util.Tunable;
+
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.robot.subsystems.IntakeSubsystem;
+import frc.robot.subsystems.ShooterSubsystem;
+import frc.robot.subsystems.shooterdeps.ShotSolver;
+
+/**
+ * coordinates the intake and shooter in teleop, so the driver asks for what they want
+ * (intake, shoot, spin up early) instead of sequencing the mechanisms.
+ * <p>
+ * The state machine runs legal overlaps on its own: the flywheels spin up while intaking and
+ * stay up while staged, the intake keeps running while spinning up and firing, and feeding starts
+ * as soon as {@link ShooterCommand#canFeed(double)}. Feeding pauses while the flywheels recover
+ * after each shot.
+ * <p>
+ * There is no game piece sensor, so {@link State#STAGED} means "has intaken since it last fired
+ * for {@link #EMPTY_TIME}". Time spent in (and entries into) each state are published at 10 Hz
+ * under "superstructure/"
+ */
+public class SuperstructureCommand extends ProfiledCommand {
+
+    public enum State {
+        /** nothing to do */
+        IDLE,
+        /** running the intake, flywheels spinning up */
+        INTAKING,
+        /** holding game pieces, flywheels kept at speed */
+        STAGED,
+        /** flywheels coming up to (or recovering) speed for a shot */
+        SPINNING_UP,
+        /** feeding game pieces into the flywheels */
+        FIRING
+    }
+
+    private static final State[] STATES = State.values();
+
+    /** seconds of feeding after which the robot is assumed to be empty */
+    public static final Tunable EMPTY_TIME = new Tunable("tune/superstructure", "empty_time", 1.5);
+
+    private final BooleanSupplier intake, shoot, spinUp;
+
+    private State state = State.IDLE;
+
+    // where the lift rests while not intaking
+    private boolean liftDown = false;
+
+    // whether game pieces (probably) are in the robot, and how long they have been fed
+    private boolean staged = false;
+    private double fedTime = 0;
+
+    // time-in-state metrics
+    private double stateSince = Timer.getFPGATimestamp(), lastExecute = Double.NaN;
+    private final double[] timeIn = new double[STATES.length];
+    private final int[] entries = new int[STATES.length];
+
+    private final String[] timeKeys = new String[STATES.length], entryKeys = new String[STATES.length];
+
+    /**
+     * @param intake whether the driver wants to intake
+     * @param shoot whether the driver wants to shoot
+     * @param spinUp whether the flywheels should spin up ahead of a shot (ex. in the shooting zone)
+     */
+    public SuperstructureCommand(BooleanSupplier intake, BooleanSupplier shoot, BooleanSupplier spinUp) {
+        this.intake = intake;
+        this.shoot = shoot;
+        this.spinUp = spinUp;
+
+        for (int i = 0; i < STATES.length; ++i) {
+            this.timeKeys[i] = "superstructure/time/" + STATES[i].name();
+            this.entryKeys[i] = "superstructure/entries/" + STATES[i].name();
+        }
+
+        RateScheduler.X.scheduleHz("Superstructure.telemetry", 10, this::publishTelemetry);
+
+        this.addRequirements(ShooterSubsystem.X, IntakeSubsystem.X);
+    }
+
+    /** rests the lift down while not intaking (ex. where game pieces are picked up) */
+    public void deployIntake() { this.liftDown = true; }
+
+    /** rests the lift up while not intaking */
+    public void stowIntake() { this.liftDown = false; }
+
+    public State getState() { return this.state; }
+
+    /** @return how long the current state has lasted, in seconds */
+    public double getTimeInState() { return Timer.getFPGATimestamp() - this.stateSince; }
+
+    @Override
+    public void initialize() {
+        this.lastExecute = Double.NaN;
+        this.setState(State.IDLE, Timer.getFPGATimestamp());
+    }
+
+    @Override
+    public void profiledExecute() {
+
+        double now = Timer.getFPGATimestamp();
+        double dt = Double.isNaN(this.lastExecute) ? 0 : now - this.lastExecute;
+        this.lastExecute = now;
+
+        this.timeIn[this.state.ordinal()] += dt;
+
+        ShooterSubsystem shooter = ShooterSubsystem.X;
+
+        boolean wantIntake = this.intake.getAsBoolean();
+        boolean wantShoot = this.shoot.getAsBoolean();
+
+        State next;
+
+        if (wantShoot) {
+            next = ShooterCommand.canFeed(ShotSolver.X.getFeedDelay()) ? State.FIRING : State.SPINNING_UP;
+        }
+        else if (wantIntake) {
+            next = State.INTAKING;
+        }
+        else if (this.staged) {
+            next = State.STAGED;
+        }
+        else {
+            next = State.IDLE;
+        }
+
+        if (next != this.state) this.setState(next, now);
+
+        // staging bookkeeping
+        if (wantIntake) {
+            this.staged = true;
+            this.fedTime = 0;
+        }
+        else if (this.state == State.FIRING) {
+            this.fedTime += dt;
+            if (this.fedTime >= EMPTY_TIME.get()) this.staged = false;
+        }
+
+        // outputs; overlaps are decided per mechanism, not per state. Only IDLE lets the wheels
+        // coast, unless the driver asks for them early
+        boolean spin = this.state != State.IDLE || this.spinUp.getAsBoolean();
+        boolean feed = this.state == State.FIRING;
+
+        shooter.run(
+            spin ? ShotSolver.X.getRpm() : 0,
+            feed ? ShooterCommand.FEED_VOLT.get() : 0,
+            feed ? ShooterCommand.BELT_VOLT.get() : 0
+        );
+
+        IntakeSubsystem.X.run(wantIntake || this.liftDown, wantIntake ? IntakeCommand.RUN_VOLT.get() : 0);
+    }
+
+    // an entry is only counted on a real change, so initialize() and end() don't inflate IDLE
+    private void setState(State next, double now) {
+        if (next != this.state) ++this.entries[next.ordinal()];
+        this.state = next;
+        this.stateSince = now;
+    }
+
+    @Override
+    public boolean isFinished() { return false; }
+
+    @Override
+    public void end(boolean wasInterrupted) {
+        ShooterSubsystem.X.run(0, 0, 0);
+        IntakeSubsystem.X.run(this.liftDown, 0);
+
+        this.setState(State.IDLE, Timer.getFPGATimestamp());
+    }
+
+    private void publishTelemetry() {
+
+        SmartDashboard.putString("superstructure/state", this.state.name());
+        SmartDashboard.putNumber("superstructure/time in state", this.getTimeInState());
+        SmartDashboard.putBoolean("superstructure/staged", this.staged);
+
+        for (int i = 0; i < STATES.length; ++i) {
+            SmartDashboard.putNumber(this.timeKeys[i], this.timeIn[i]);
+            SmartDashboard.putNumber(this.entryKeys[i], this.entries[i]);
+        }
+    }
+}
@@ -1,16 +1,16 @@
 package frc.robot.commands;
 
-import edu.wpi.first.wpilibj2.command.Command;
+import com.gmail.frcteam1758.lib.util.ProfiledCommand;
 import frc.robot.subsystems.DriveSubsystem;
 
-public class TeleopDriveCommand extends Command {
+public class TeleopDriveCommand extends ProfiledCommand {
 
     public static final TeleopDriveCommand X = new TeleopDriveCommand();
 
     private TeleopDriveCommand() {}
     
     @Override
-    public void execute() {
+    public void profiledExecute() {
         DriveSubsystem.X.performTeleop();
     }
 
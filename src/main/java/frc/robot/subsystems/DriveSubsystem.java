@@ -1,21 +1,37 @@
 package frc.robot.subsystems;
 
+import java.util.function.DoubleSupplier;
+
 import com.gmail.frcteam1758.lib.enums.SwerveDriveMode;
 import com.gmail.frcteam1758.lib.swervedrive.SwerveChassis2;
 import com.gmail.frcteam1758.lib.swervedrive.control.SwerveDriveControls2023;
 import com.gmail.frcteam1758.lib.swervedrive.control.SwerveDriveInput;
 import com.gmail.frcteam1758.lib.swervedrive.control.SwerveDriveState;
 import com.gmail.frcteam1758.lib.swervedrive.vortex.VortexSwerveModule;
+import com.gmail.frcteam1758.lib.util.DoubleBoundedSet;
+import com.gmail.frcteam1758.lib.util.LoopEvents;
+import com.gmail.frcteam1758.lib.util.ProfiledSubsystem;
+import com.gmail.frcteam1758.lib.util.RateScheduler;
+import com.gmail.frcteam1758.lib.util.Tunable;
 import com.pathplanner.lib.util.DriveFeedforwards;
 
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.geometry.Twist2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.simulation.RoboRioSim;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
-import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Constants;
+import frc.robot.subsystems.navdeps.FieldZones;
+import frc.robot.subsystems.navdeps.NavGrid;
+import frc.robot.subsystems.shooterdeps.ShotSolver;
+import frc.robot.subsystems.visiondeps.VisionFusion;
+import frc.robot.subsystems.visiondeps.VisionLatency;
+import frc.robot.subsystems.visiondeps.VisionMeasurement;
+import frc.robot.subsystems.visiondeps.VisionWorker;
 
-public class DriveSubsystem extends SubsystemBase {
+public class DriveSubsystem extends ProfiledSubsystem {
 
     private final VortexSwerveModule[] modules = {
 
@@ -37,10 +53,10 @@ public class DriveSubsystem extends SubsystemBase {
         )
     };
 
-    private final SwerveDriveInput controls = new SwerveDriveControls2023(
+    private final SwerveDriveControls2023 controls = new SwerveDriveControls2023(
         0,
         1,
-        NavSubsystem.X::getAngle,
+        NavSubsystem.X::getAngleRadians,
         SwerveDriveMode.FIELD_ORIENTED,
         4.8,
         4.0
@@ -51,24 +67,139 @@ public class DriveSubsystem extends SubsystemBase {
         SwerveDriveInput.NO_INPUT,
         modules, 4.0, NavSubsystem.X::getAngle);
 
+    // drive velocity gains, adjustable from the dashboard
+    private final Tunable
+        driveP = new Tunable("tune/drive", "kP", 0.04),
+        driveI = new Tunable("tune/drive", "kI", 0),
+        driveD = new Tunable("tune/drive", "kD", 0)
+    ;
+
+    // shot heading from the ShotSolver, converted to the gyro frame the controls use
+    private double aimHeading = 0;
+    private final DoubleSupplier aimHeadingGetter = () -> this.aimHeading;
+
+    // where the simulated robot really is; the pose estimator only sees it through odometry and vision
+    private Pose2d simTruePose = new Pose2d();
+
     public static final DriveSubsystem X = new DriveSubsystem();
 
-    private DriveSubsystem() {}
+    private DriveSubsystem() {
+        // heading lead covers one loop + CAN frame before the modules act on a command
+        this.controls.enableLatencyCompensation(
+            NavSubsystem.X::getAngVelocityRadPerSec,
+            Constants.kLoopPeriod + Constants.kCanLatency,
+            Constants.kLoopPeriod
+        );
+
+        // precision / normal / full speed, starting at full; ramped so shifting doesn't jerk
+        DoubleBoundedSet speedModes = new DoubleBoundedSet(0.35, 0.7, 1.0);
+        speedModes.toEnd();
+        speedModes.setRampRate(2.0);
+        this.controls.setSpeedModes(speedModes, 5, 4);
+
+        // keep teleop from driving into field elements; bumpers are ~0.45m from center
+        this.controls.enableObstacleAssist(this::getEstimatedPose, NavGrid.X::getField, 0.5, 1.2);
+
+        RateScheduler.X.scheduleHz("Drive.telemetry", 10, this::publishTelemetry);
+
+        this.driveP.onChange(v -> this.applyDriveGains());
+        this.driveI.onChange(v -> this.applyDriveGains());
+        this.driveD.onChange(v -> this.applyDriveGains());
+    }
+
+    private void applyDriveGains() {
+        for (var m: this.modules) {m.applyDriveGains(this.driveP.get(), this.driveI.get(), this.driveD.get());}
+    }
 
     @Override
-    public void periodic() {
+    public void profiledPeriodic() {
+
+        VisionMeasurement m = NavSubsystem.X.pollVisionPose();
+
+        Pose2d pose;
+
+        if (m != null) {
 
-        if (NavSubsystem.X.hasVisionPose()) {
-            this.chassis.getPose(NavSubsystem.X.getPose(), NavSubsystem.X.getVisionTimestamp());
+            LoopEvents.PoseFusion event = LoopEvents.isEnabled() ? new LoopEvents.PoseFusion() : null;
+            if (event != null) event.begin();
+
+            ChassisSpeeds speeds = this.chassis.getCurrentSpeeds();
+
+            VisionFusion.Result r = VisionFusion.X.evaluate(
+                m,
+                this.chassis.getEstimatedPose(),
+                Math.hypot(speeds.vxMetersPerSecond, speeds.vyMetersPerSecond),
+                speeds.omegaRadiansPerSecond
+            );
+
+            if (r == VisionFusion.Result.ACCEPTED) {
+                pose = this.chassis.getPose(m.pose, m.timestampSeconds, VisionFusion.X.getStdDevs());
+
+                VisionLatency.X.recordFusion(m.timestampSeconds, m.estimateTime, VisionLatency.now());
+            }
+            else {
+                pose = this.chassis.getPose();
+            }
+
+            if (event != null) {
+                event.result = r.name();
+                event.commit();
+            }
         }
         else {
-            this.chassis.getPose();
+            pose = this.chassis.getPose();
         }
 
-        SmartDashboard.putNumber("chassisSpeedX", this.controls.getCommandedState().speeds.vxMetersPerSecond);
-        SmartDashboard.putNumber("chassisSpeedY", this.controls.getCommandedState().speeds.vyMetersPerSecond);
+        // reference for the next vision estimate
+        VisionWorker.X.setReferencePose(pose);
+
+        // zone triggers are polled after subsystem periodics
+        FieldZones.X.update(pose);
+
+        // solved before commands run, for ShooterCommand and heading hold
+        ShotSolver.X.update(pose, this.chassis.getCurrentSpeeds());
 
-        SmartDashboard.putNumber("chassisSpeedR (rad/s)", this.controls.getCommandedState().speeds.omegaRadiansPerSecond);
+        // the controls hold headings in the gyro's frame, which drifts from the fused pose's
+        this.aimHeading =
+            ShotSolver.X.getHeading() - pose.getRotation().getRadians() + NavSubsystem.X.getAngleRadians();
+    }
+
+    @Override
+    public void simulationPeriodic() {
+
+        double dt = Constants.kLoopPeriod;
+        double vBus = RoboRioSim.getVInVoltage();
+
+        for (var m: this.modules) {m.simulationPeriodic(dt, vBus);}
+
+        // the simulated modules are ideal, so what they report is what the robot did
+        ChassisSpeeds speeds = this.chassis.getCurrentSpeeds();
+
+        NavSubsystem.X.simulateRotation(speeds.omegaRadiansPerSecond, dt);
+
+        this.simTruePose = this.simTruePose.exp(new Twist2d(
+            speeds.vxMetersPerSecond * dt,
+            speeds.vyMetersPerSecond * dt,
+            speeds.omegaRadiansPerSecond * dt
+        ));
+
+        Pose2d estimate = this.getEstimatedPose();
+
+        SmartDashboard.putNumber("sim/pose error (m)",
+            estimate.getTranslation().getDistance(this.simTruePose.getTranslation()));
+        SmartDashboard.putNumber("sim/heading error (deg)",
+            estimate.getRotation().minus(this.simTruePose.getRotation()).getDegrees());
+    }
+
+    private void publishTelemetry() {
+
+        // the last command, not a new one: reading input again would step the slew limiter
+        ChassisSpeeds commanded = this.controls.getLastCommandedState().speeds;
+
+        SmartDashboard.putNumber("chassisSpeedX", commanded.vxMetersPerSecond);
+        SmartDashboard.putNumber("chassisSpeedY", commanded.vyMetersPerSecond);
+
+        SmartDashboard.putNumber("chassisSpeedR (rad/s)", commanded.omegaRadiansPerSecond);
     }
 
     /**
@@ -87,6 +218,23 @@ public class DriveSubsystem extends SubsystemBase {
         this.chassis.run(new SwerveDriveState(x));
     }
 
+    /**
+     * turns the robot toward the {@link ShotSolver}'s heading and holds it, while the driver
+     * keeps translating
+     */
+    public void startAiming() {
+        this.controls.enableHeadingHold(this.aimHeadingGetter, NavSubsystem.X::getAngVelocityRadPerSec);
+    }
+
+    public void stopAiming() { this.controls.disableHeadingHold(); }
+
+    public boolean isAiming() { return this.controls.isHoldingHeading(); }
+
+    /**
+     * @return whether the robot is aiming and within tolerance of the shot heading
+     */
+    public boolean isAimed() { return this.isAiming() && this.controls.getHeadingController().atTarget(); }
+
     public ChassisSpeeds getSpeeds() {
         return this.chassis.getCurrentSpeeds();
     }
@@ -94,12 +242,27 @@ public class DriveSubsystem extends SubsystemBase {
     public void resetOdometricPose(Pose2d pos) {
 
         this.chassis.resetPose(pos);
+
+        // the simulated robot starts wherever it is told to
+        if (RobotBase.isSimulation()) this.simTruePose = pos;
     }
 
     public Pose2d getOdometricPose() {
         return this.chassis.getPose();
     }
 
+    /**
+     * @return where the simulated robot really is (ground truth for the estimate). Only moves in simulation
+     */
+    public Pose2d getSimTruePose() { return this.simTruePose; }
+
+    /**
+     * @return the pose estimate as of the last update, without updating odometry
+     */
+    public Pose2d getEstimatedPose() {
+        return this.chassis.getEstimatedPose();
+    }
+
     public void drive(ChassisSpeeds speeds, DriveFeedforwards f) {
         this.chassis.run(new SwerveDriveState(speeds));
     }
@@ -1,7 +1,12 @@
 package frc.robot.subsystems;
 
+import com.gmail.frcteam1758.lib.util.ProfiledSubsystem;
+import com.gmail.frcteam1758.lib.util.RateScheduler;
+import com.gmail.frcteam1758.lib.util.SparkConfigs;
+import com.gmail.frcteam1758.lib.util.Tunable;
 import com.revrobotics.PersistMode;
 import com.revrobotics.ResetMode;
+import com.revrobotics.spark.FeedbackSensor;
 import com.revrobotics.spark.SparkAbsoluteEncoder;
 import com.revrobotics.spark.SparkClosedLoopController;
 import com.revrobotics.spark.SparkFlex;
@@ -10,10 +15,12 @@ import com.revrobotics.spark.SparkBase.ControlType;
 import com.revrobotics.spark.SparkLowLevel.MotorType;
 import com.revrobotics.spark.config.SparkFlexConfig;
 import com.revrobotics.spark.config.SparkMaxConfig;
-import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import com.revrobotics.spark.config.SparkBaseConfig.IdleMode;
+
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import frc.robot.commands.*;
 
-public class IntakeSubsystem extends SubsystemBase {
+public class IntakeSubsystem extends ProfiledSubsystem {
 
     private final SparkFlex driveMC = new SparkFlex(20, MotorType.kBrushless);
     private final SparkClosedLoopController drivePIDF = this.driveMC.getClosedLoopController();
@@ -22,31 +29,112 @@ public class IntakeSubsystem extends SubsystemBase {
     private final SparkClosedLoopController liftPIDF = liftMC.getClosedLoopController();
     private final SparkAbsoluteEncoder liftEnc = liftMC.getAbsoluteEncoder();
 
+    // lift targets and profile, in absolute encoder rotations (and rpm, rpm/s)
+    private static final Tunable
+        UP_POS         = new Tunable("tune/intake", "up_pos"          , 0.45),
+        DOWN_POS       = new Tunable("tune/intake", "down_pos"        , 0.85),
+        LIFT_P         = new Tunable("tune/intake", "lift_p"          , 4),
+        LIFT_CRUISE    = new Tunable("tune/intake", "lift_cruise_rpm" , 60),
+        LIFT_ACCEL     = new Tunable("tune/intake", "lift_accel_rpmps", 240),
+        LIFT_TOLERANCE = new Tunable("tune/intake", "lift_tolerance"  , 0.02)
+    ;
+
+    // the lift's current target; null until the first setpoint, so it is always sent once
+    private Boolean liftDown = null;
+
+    private double liftTarget = 0;
+
+    private boolean liftAtTarget = false;
+
     public static final IntakeSubsystem X = new IntakeSubsystem();
-    
+
     private IntakeSubsystem() {
 
-        this.driveMC.configure(new SparkFlexConfig(), ResetMode.kResetSafeParameters, PersistMode.kPersistParameters);
+        SparkConfigs.configure(this.driveMC, new SparkFlexConfig(), ResetMode.kResetSafeParameters, PersistMode.kPersistParameters);
+
+        SparkConfigs.configure(this.liftMC, this.liftConfig(), ResetMode.kResetSafeParameters, PersistMode.kPersistParameters);
 
-        this.liftMC.configure(new SparkMaxConfig(), ResetMode.kResetSafeParameters, PersistMode.kPersistParameters);
+        // profile and gains can be changed from the dashboard; the new target is resent with them
+        LIFT_P        .onChange(v -> this.reconfigureLift());
+        LIFT_CRUISE   .onChange(v -> this.reconfigureLift());
+        LIFT_ACCEL    .onChange(v -> this.reconfigureLift());
+        LIFT_TOLERANCE.onChange(v -> this.reconfigureLift());
+        UP_POS        .onChange(v -> this.liftDown = null);
+        DOWN_POS      .onChange(v -> this.liftDown = null);
 
-        //this.setDefaultCommand(IntakeCommand.IDLE_DOWN.get());
+        RateScheduler.X.scheduleHz("Intake.telemetry", 10, this::publishTelemetry);
+
+        //this.setDefaultCommand(IntakeCommand.IDLE_DOWN);
+    }
+
+    // trapezoidal position control on the absolute encoder, run on the SparkMax
+    private SparkMaxConfig liftConfig() {
+
+        SparkMaxConfig cfg = new SparkMaxConfig();
+
+        cfg.idleMode(IdleMode.kBrake);
+
+        cfg.closedLoop
+            .feedbackSensor(FeedbackSensor.kAbsoluteEncoder)
+            .pid(LIFT_P.get(), 0, 0)
+            .outputRange(-1, 1)
+        ;
+
+        cfg.closedLoop.maxMotion
+            .cruiseVelocity(LIFT_CRUISE.get())
+            .maxAcceleration(LIFT_ACCEL.get())
+            .allowedProfileError(LIFT_TOLERANCE.get())
+        ;
+
+        return cfg;
+    }
+
+    // sent without waiting, since tuning happens while enabled
+    private void reconfigureLift() {
+        SparkConfigs.configureAsync(this.liftMC, this.liftConfig(), ResetMode.kNoResetSafeParameters, PersistMode.kNoPersistParameters);
+        this.liftDown = null;
     }
 
     public void run(boolean isDown, double v) {
 
         this.drivePIDF.setSetpoint(v, ControlType.kVoltage);
 
-        if (isDown && liftEnc.getPosition() < 0.8) {
-            this.liftPIDF.setSetpoint(DOWN_VOLTS, ControlType.kVoltage);
-        }
-        else if (!isDown && liftEnc.getPosition() > 0.5) {
-            this.liftPIDF.setSetpoint(UP_VOLTS, ControlType.kVoltage);
-        }
-        else {
-            this.liftPIDF.setSetpoint(0, ControlType.kVoltage);
-        }
+        this.setLift(isDown);
     }
 
-    private static final double UP_VOLTS = -2, DOWN_VOLTS = 3;
+    /**
+     * moves the lift up or down. The profile runs on the SparkMax, so a setpoint is only sent
+     * when the target changes
+     */
+    public void setLift(boolean isDown) {
+
+        if (this.liftDown != null && this.liftDown == isDown) return;
+
+        this.liftDown = isDown;
+        this.liftTarget = isDown ? DOWN_POS.get() : UP_POS.get();
+        this.liftAtTarget = false;
+
+        this.liftPIDF.setSetpoint(this.liftTarget, ControlType.kMAXMotionPositionControl);
+    }
+
+    /**
+     * @return whether the lift has reached its current target
+     */
+    public boolean liftAtTarget() { return this.liftDown != null && this.liftAtTarget; }
+
+    /**
+     * @return whether the lift's current target is down (it may still be moving, see {@link #liftAtTarget()})
+     */
+    public boolean isLiftDown() { return this.liftDown != null && this.liftDown; }
+
+    @Override
+    public void profiledPeriodic() {
+        this.liftAtTarget = Math.abs(this.liftEnc.getPosition() - this.liftTarget) < LIFT_TOLERANCE.get();
+    }
+
+    private void publishTelemetry() {
+        SmartDashboard.putNumber("intake/lift position", this.liftEnc.getPosition());
+        SmartDashboard.putNumber("intake/lift target", this.liftTarget);
+        SmartDashboard.putBoolean("intake/lift at target", this.liftAtTarget());
+    }
 }
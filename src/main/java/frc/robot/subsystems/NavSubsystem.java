@@ -1,41 +1,95 @@
 package frc.robot.subsystems;
 
+import com.gmail.frcteam1758.lib.util.ProfiledSubsystem;
+import com.gmail.frcteam1758.lib.util.RateScheduler;
 import com.studica.frc.AHRS;
 import com.studica.frc.AHRS.NavXComType;
 
+import org.photonvision.EstimatedRobotPose;
+import org.photonvision.targeting.PhotonPipelineResult;
+
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.units.Units;
 import edu.wpi.first.units.measure.AngularVelocity;
+import edu.wpi.first.wpilibj.RobotBase;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
-import edu.wpi.first.wpilibj2.command.SubsystemBase;
 
+import frc.robot.subsystems.visiondeps.AprilTagPublisher;
 import frc.robot.subsystems.visiondeps.PhotonVisionWrapper;
+import frc.robot.subsystems.visiondeps.VisionLatency;
+import frc.robot.subsystems.visiondeps.VisionMeasurement;
+import frc.robot.subsystems.visiondeps.VisionWorker;
 
-public class NavSubsystem extends SubsystemBase {
+public class NavSubsystem extends ProfiledSubsystem {
 
     public static final NavSubsystem X = new NavSubsystem();
 
     private final AHRS gyro = new AHRS(NavXComType.kMXP_SPI);
 
+    // the gyro in simulation, turned by DriveSubsystem's simulated chassis
+    private final boolean simulated = RobotBase.isSimulation();
+    private double simAngle = 0, simRate = 0;
+
     private Rotation2d oldAngle = new Rotation2d();
     private Rotation2d newAngle = new Rotation2d();
 
     // Vision tracking fields
     private Pose2d visionPose = null;
+    private VisionMeasurement visionMeasurement = null;
     private double visionTimestamp = 0;
 
-    private NavSubsystem() {}
+    private final AprilTagPublisher tagPublisher = new AprilTagPublisher();
 
-    @Override
-    public void periodic() {
-        // periodic vision stuff
-        SmartDashboard.putNumber("gyro (deg)", this.getAngle().getDegrees());
+    private NavSubsystem() {
+        // decoding and pose estimation run off the main loop
+        VisionWorker.X.start();
+
+        RateScheduler.X.scheduleHz("Nav.telemetry", 10, this::publishTelemetry);
+    }
 
+    @Override
+    public void profiledPeriodic() {
         this.oldAngle = this.newAngle;
         this.newAngle = this.getAngle();
     }
 
+    private void publishTelemetry() {
+
+        SmartDashboard.putNumber("gyro (deg)", this.getAngle().getDegrees());
+
+        PhotonPipelineResult result = VisionWorker.X.getLatestResult();
+
+        if (result == null || !result.hasTargets()) {
+            this.tagPublisher.publishNoTarget();
+        }
+        else {
+            this.tagPublisher.publishDetections(result);
+        }
+
+        EstimatedRobotPose estimate = VisionWorker.X.getLatestEstimate();
+
+        if (estimate != null) this.tagPublisher.publishPose(estimate);
+
+        VisionLatency.X.publish();
+    }
+
+    @Override
+    public void simulationPeriodic() {
+        // the camera sees the field from where the robot really is, not where it thinks it is
+        PhotonVisionWrapper.X.updateSim(DriveSubsystem.X.getSimTruePose());
+    }
+
+    /**
+     * turns the simulated gyro (does nothing on a real robot)
+     * @param rate counter-clockwise angular velocity, in rad/s
+     * @param dt time it turned for, in seconds
+     */
+    public void simulateRotation(double rate, double dt) {
+        this.simRate = rate;
+        this.simAngle += rate * dt;
+    }
+
     public Pose2d getPose() {
         if (this.hasVisionPose()) {
             return this.getVisionPose();
@@ -44,6 +98,7 @@ public class NavSubsystem extends SubsystemBase {
     }
 
     public void zeroAngle() {
+        if (this.simulated) this.simAngle = 0;
         this.gyro.setAngleAdjustment(-this.getAngle().getDegrees());
     }
 
@@ -51,7 +106,18 @@ public class NavSubsystem extends SubsystemBase {
      * @return the orientation of the robot
      */
     public Rotation2d getAngle() {
-        return this.gyro.getRotation2d().times(-1);
+        return Rotation2d.fromRadians(this.getAngleRadians());
+    }
+
+    /**
+     * @return the orientation of the robot in radians, same as {@link #getAngle()} but without
+     * allocating (ex. for the drive controls, which read it every cycle)
+     */
+    public double getAngleRadians() {
+        if (this.simulated) return this.simAngle;
+
+        // same as gyro.getRotation2d().times(-1), since the rotation is the negated angle
+        return Math.toRadians(this.gyro.getAngle());
     }
 
     public AngularVelocity getAngVelocity() {
@@ -61,6 +127,15 @@ public class NavSubsystem extends SubsystemBase {
         );
     }
 
+    /**
+     * @return the robot's angular velocity in rad/s, straight from the gyro (same direction as
+     * {@link #getAngle()}; unlike {@link #getAngVelocity()} this is not a loop behind)
+     */
+    public double getAngVelocityRadPerSec() {
+        if (this.simulated) return this.simRate;
+        return Math.toRadians(this.gyro.getRate());
+    }
+
     /**
      * @return the position of the robot as determined by vision systems
      */
@@ -69,11 +144,10 @@ public class NavSubsystem extends SubsystemBase {
     }
 
     /**
-     * @return whether or not a viable vision-based pose is available
+     * @return whether or not a new viable vision-based pose was picked up by the last
+     * call to {@link #pollVisionPose()}
      */
     public boolean hasVisionPose() {
-        this.updateVisionPose(PhotonVisionWrapper.X);
-
         return this.visionPose != null;
     }
 
@@ -85,26 +159,32 @@ public class NavSubsystem extends SubsystemBase {
     }
 
     /**
-     * Call this method periodically to update the vision pose.
+     * @return the available vision pose, with what is needed to decide how much to trust it
+     * (null if there is none)
      */
-    private void updateVisionPose(PhotonVisionWrapper photonVision) {
-        if (photonVision == null) {
-            this.visionPose = null;
-            this.visionTimestamp = 0;
-            return;
-        }
+    public VisionMeasurement getVisionMeasurement() {
+        return this.visionMeasurement;
+    }
 
-        Pose2d prevPose = DriveSubsystem.X.getOdometricPose();
-        var result = photonVision.getLatestResult();
-        var estimateOpt = photonVision.getEstimatedGlobalPose(prevPose, result);
+    /**
+     * picks up the newest estimate finished by the {@link VisionWorker}, if any.
+     * Call this exactly once per loop, before using the vision pose.
+     * @return the new measurement, or null if there is none
+     */
+    public VisionMeasurement pollVisionPose() {
+
+        VisionMeasurement m = VisionWorker.X.poll();
 
-        if (estimateOpt.isPresent()) {
-            var estimate = estimateOpt.get();
-            this.visionPose = estimate.estimatedPose.toPose2d();
-            this.visionTimestamp = estimate.timestampSeconds;
-        } else {
+        this.visionMeasurement = m;
+
+        if (m != null) {
+            this.visionPose = m.pose;
+            this.visionTimestamp = m.timestampSeconds;
+        }
+        else {
             this.visionPose = null;
             this.visionTimestamp = 0;
         }
+        return m;
     }
 }
@@ -1,7 +1,14 @@
 package frc.robot.subsystems;
 
+import com.gmail.frcteam1758.lib.util.ProfiledSubsystem;
+import com.gmail.frcteam1758.lib.util.RateScheduler;
+import com.gmail.frcteam1758.lib.util.SparkConfigs;
+import com.gmail.frcteam1758.lib.util.Tunable;
 import com.revrobotics.PersistMode;
+import com.revrobotics.RelativeEncoder;
 import com.revrobotics.ResetMode;
+import com.revrobotics.sim.SparkFlexSim;
+import com.revrobotics.spark.FeedbackSensor;
 import com.revrobotics.spark.SparkClosedLoopController;
 import com.revrobotics.spark.SparkFlex;
 import com.revrobotics.spark.SparkMax;
@@ -10,10 +17,19 @@ import com.revrobotics.spark.SparkLowLevel.MotorType;
 import com.revrobotics.spark.config.SparkBaseConfig;
 import com.revrobotics.spark.config.SparkFlexConfig;
 import com.revrobotics.spark.config.SparkMaxConfig;
-import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import com.revrobotics.spark.config.SparkBaseConfig.IdleMode;
+
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.math.system.plant.LinearSystemId;
+import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.simulation.FlywheelSim;
+import edu.wpi.first.wpilibj.simulation.RoboRioSim;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.robot.Constants;
 import frc.robot.commands.*;
 
-public class ShooterSubsystem extends SubsystemBase {
+public class ShooterSubsystem extends ProfiledSubsystem {
 
     private final SparkFlex
         shootMCL = new SparkFlex(23, MotorType.kBrushless),
@@ -28,35 +44,183 @@ public class ShooterSubsystem extends SubsystemBase {
     private final SparkClosedLoopController shootPidfL = this.shootMCL.getClosedLoopController();
     private final SparkClosedLoopController shootPidfR = this.shootMCR.getClosedLoopController();
 
+    private final RelativeEncoder shootEncL = this.shootMCL.getEncoder();
+    private final RelativeEncoder shootEncR = this.shootMCR.getEncoder();
+
     private final SparkClosedLoopController feedPidfL  = this.feedMCL .getClosedLoopController();
     private final SparkClosedLoopController feedPidfR  = this.feedMCR .getClosedLoopController();
     private final SparkClosedLoopController beltPidf   = this.beltMC  .getClosedLoopController();
 
+    private static final Tunable
+        SHOOT_P         = new Tunable("tune/shooter", "shoot_p"            , 0.0002),
+        READY_TOLERANCE = new Tunable("tune/shooter", "ready_tolerance_rpm", 100),
+        READY_SAMPLES   = new Tunable("tune/shooter", "ready_samples"      , 5)
+    ;
+
+    // volts per motor rpm; a Vortex spins at about 6784 rpm on 12 V
+    private static final double SHOOT_KV = 12.0 / 6784;
+
+    // flywheel model for sim, per side
+    private static final double SIM_MOI = 0.002, SIM_GEARING = 1.0;
+
+    private double targetRpm = 0;
+
+    // consecutive samples with both wheels inside the tolerance
+    private int stableSamples = 0;
+
+    // when the shooter last became ready (NaN while it is not)
+    private double readySince = Double.NaN;
+
+    private final FlywheelSim wheelSimL, wheelSimR;
+    private final SparkFlexSim shootSimL, shootSimR;
+
     public static final ShooterSubsystem X = new ShooterSubsystem();
 
     private ShooterSubsystem() {
 
-        SparkBaseConfig flexCfg = new SparkFlexConfig();
+        SparkFlexConfig flexCfg = new SparkFlexConfig();
         SparkBaseConfig maxCFG  = new SparkMaxConfig ();
 
-        shootMCL.configure(flexCfg, ResetMode.kResetSafeParameters, PersistMode.kPersistParameters);
-        shootMCR.configure(flexCfg, ResetMode.kResetSafeParameters, PersistMode.kPersistParameters);
+        flexCfg.idleMode(IdleMode.kCoast);
+
+        flexCfg.closedLoop
+            .feedbackSensor(FeedbackSensor.kPrimaryEncoder)
+            .pid(SHOOT_P.get(), 0, 0)
+            .outputRange(-1, 1)
+        ;
+
+        flexCfg.closedLoop.feedForward.kV(SHOOT_KV);
 
-        feedMCL.configure(maxCFG, ResetMode.kResetSafeParameters, PersistMode.kPersistParameters);
-        feedMCR.configure(maxCFG, ResetMode.kResetSafeParameters, PersistMode.kPersistParameters);
-        beltMC .configure(maxCFG, ResetMode.kResetSafeParameters, PersistMode.kPersistParameters);
+        // readiness is checked every loop, so velocity should not be older than that
+        flexCfg.signals.primaryEncoderVelocityPeriodMs(10);
 
-        //this.setDefaultCommand(ShooterCommand.IDLE.get());
+        SparkConfigs.configure(this.shootMCL, flexCfg, ResetMode.kResetSafeParameters, PersistMode.kPersistParameters);
+        SparkConfigs.configure(this.shootMCR, flexCfg, ResetMode.kResetSafeParameters, PersistMode.kPersistParameters);
+
+        SparkConfigs.configure(this.feedMCL, maxCFG, ResetMode.kResetSafeParameters, PersistMode.kPersistParameters);
+        SparkConfigs.configure(this.feedMCR, maxCFG, ResetMode.kResetSafeParameters, PersistMode.kPersistParameters);
+        SparkConfigs.configure(this.beltMC, maxCFG, ResetMode.kResetSafeParameters, PersistMode.kPersistParameters);
+
+        // sent without waiting, since tuning happens while enabled
+        SHOOT_P.onChange(p -> {
+            SparkFlexConfig pCfg = new SparkFlexConfig();
+            pCfg.closedLoop.p(p);
+            SparkConfigs.configureAsync(this.shootMCL, pCfg, ResetMode.kNoResetSafeParameters, PersistMode.kNoPersistParameters);
+            SparkConfigs.configureAsync(this.shootMCR, pCfg, ResetMode.kNoResetSafeParameters, PersistMode.kNoPersistParameters);
+        });
+
+        if (RobotBase.isSimulation()) {
+
+            DCMotor vortex = DCMotor.getNeoVortex(1);
+
+            this.wheelSimL = new FlywheelSim(LinearSystemId.createFlywheelSystem(vortex, SIM_MOI, SIM_GEARING), vortex);
+            this.wheelSimR = new FlywheelSim(LinearSystemId.createFlywheelSystem(vortex, SIM_MOI, SIM_GEARING), vortex);
+
+            this.shootSimL = new SparkFlexSim(this.shootMCL, vortex);
+            this.shootSimR = new SparkFlexSim(this.shootMCR, vortex);
+        }
+        else {
+            this.wheelSimL = this.wheelSimR = null;
+            this.shootSimL = this.shootSimR = null;
+        }
+
+        RateScheduler.X.scheduleHz("Shooter.telemetry", 10, this::publishTelemetry);
+
+        //this.setDefaultCommand(ShooterCommand.IDLE);
     }
-    
-    public void run(double shootVolts, double feedVolts, double beltVolts) {
 
-        this.shootPidfL.setSetpoint(-shootVolts, ControlType.kVoltage);
-        this.shootPidfR.setSetpoint( shootVolts, ControlType.kVoltage);
+    /**
+     * @param shootRpm flywheel speed, in motor rpm (0 to coast down)
+     * @param feedVolts feeder voltage
+     * @param beltVolts belt voltage
+     */
+    public void run(double shootRpm, double feedVolts, double beltVolts) {
+
+        this.setFlywheel(shootRpm);
 
-        this.feedPidfL.setSetpoint(-beltVolts, ControlType.kVoltage);
-        this.feedPidfR.setSetpoint( beltVolts, ControlType.kVoltage);
+        this.feedPidfL.setSetpoint(-feedVolts, ControlType.kVoltage);
+        this.feedPidfR.setSetpoint( feedVolts, ControlType.kVoltage);
 
         this.beltPidf.setSetpoint(beltVolts, ControlType.kVoltage);
     }
+
+    /**
+     * runs the flywheels closed-loop on the Spark Flexes
+     * @param rpm motor rpm (0 to coast down)
+     */
+    public void setFlywheel(double rpm) {
+
+        // mapped targets move a little every cycle; only a real change starts readiness over
+        if (Math.abs(rpm - this.targetRpm) > READY_TOLERANCE.get()) this.stableSamples = 0;
+
+        this.targetRpm = rpm;
+
+        if (rpm == 0) {
+            // let the wheels coast instead of braking them with the velocity loop
+            this.shootPidfL.setSetpoint(0, ControlType.kVoltage);
+            this.shootPidfR.setSetpoint(0, ControlType.kVoltage);
+        }
+        else {
+            this.shootPidfL.setSetpoint(-rpm, ControlType.kVelocity);
+            this.shootPidfR.setSetpoint( rpm, ControlType.kVelocity);
+        }
+    }
+
+    /**
+     * @return whether both flywheels have been within tolerance of a non-zero target for
+     * the required number of samples
+     */
+    public boolean isReady() {
+        return this.targetRpm != 0 && this.stableSamples >= READY_SAMPLES.get();
+    }
+
+    /**
+     * @param delay how long the shooter should have been ready, in seconds (ex. a feed delay)
+     * @return whether the shooter has been ready for at least {@code delay}
+     */
+    public boolean readyFor(double delay) {
+        return this.isReady() && !Double.isNaN(this.readySince) && Timer.getFPGATimestamp() - this.readySince >= delay;
+    }
+
+    public double getTargetRpm() { return this.targetRpm; }
+
+    @Override
+    public void profiledPeriodic() {
+
+        double tolerance = READY_TOLERANCE.get();
+
+        boolean inTolerance =
+            Math.abs(-this.shootEncL.getVelocity() - this.targetRpm) < tolerance &&
+            Math.abs( this.shootEncR.getVelocity() - this.targetRpm) < tolerance
+        ;
+
+        // any sample outside the tolerance (ex. a shot pulling the wheels down) starts over
+        this.stableSamples = inTolerance ? this.stableSamples + 1 : 0;
+
+        if (!this.isReady()) this.readySince = Double.NaN;
+        else if (Double.isNaN(this.readySince)) this.readySince = Timer.getFPGATimestamp();
+    }
+
+    @Override
+    public void simulationPeriodic() {
+
+        double vBus = RoboRioSim.getVInVoltage();
+
+        this.wheelSimL.setInputVoltage(this.shootSimL.getAppliedOutput() * vBus);
+        this.wheelSimR.setInputVoltage(this.shootSimR.getAppliedOutput() * vBus);
+
+        this.wheelSimL.update(Constants.kLoopPeriod);
+        this.wheelSimR.update(Constants.kLoopPeriod);
+
+        this.shootSimL.iterate(this.wheelSimL.getAngularVelocityRPM() * SIM_GEARING, vBus, Constants.kLoopPeriod);
+        this.shootSimR.iterate(this.wheelSimR.getAngularVelocityRPM() * SIM_GEARING, vBus, Constants.kLoopPeriod);
+    }
+
+    private void publishTelemetry() {
+
+        SmartDashboard.putNumber("shooter/target (rpm)", this.targetRpm);
+        SmartDashboard.putNumber("shooter/left (rpm)", -this.shootEncL.getVelocity());
+        SmartDashboard.putNumber("shooter/right (rpm)", this.shootEncR.getVelocity());
+        SmartDashboard.putBoolean("shooter/ready", this.isReady());
+    }
 }
@@ -0,0 +1,108 @@
+package frc.robot.subsystems.navdeps;
+
+import com.gmail.frcteam1758.lib.util.AllianceCache;
+import com.gmail.frcteam1758.lib.util.ZoneIndex;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.StringPublisher;
+import edu.wpi.first.wpilibj2.command.button.Trigger;
+import frc.robot.subsystems.visiondeps.FieldLayout;
+
+/**
+ * field regions that trigger superstructure pre-actions (ex. spinning up the shooter before
+ * reaching the shooting position).
+ * <p>
+ * Zones are written for the blue alliance and mirrored for red, through the center of the
+ * {@link FieldLayout}'s field; the robot is in no zone until that has loaded.
+ * {@link #update(Pose2d)} looks the pose up once per cycle (O(1), see {@link ZoneIndex});
+ * {@link #in(int)} turns a zone into a {@link Trigger}, so entering and leaving are {@code onTrue}/{@code onFalse}
+ */
+public class FieldZones {
+
+    public static final FieldZones X = new FieldZones();
+
+    private static final double CELL_SIZE = 0.25;
+
+    // past the far wall, so a zone spans the field's width whatever its exact size
+    private static final double FULL_WIDTH = 10;
+
+    private final ZoneIndex index = new ZoneIndex();
+
+    // approximate, blue-origin meters
+
+    /** our alliance zone, where we can score into the hub */
+    public final int SHOOTING = this.index.addPolygon("shooting",
+        0.0, 0.0,
+        3.9, 0.0,
+        3.9, FULL_WIDTH,
+        0.0, FULL_WIDTH
+    );
+
+    /** the neutral zone, where most fuel is picked up */
+    public final int NEUTRAL = this.index.addPolygon("neutral",
+        5.6 , 0.0,
+        10.9, 0.0,
+        10.9, FULL_WIDTH,
+        5.6 , FULL_WIDTH
+    );
+
+    /** around our depot */
+    public final int DEPOT = this.index.addCircle("depot", 0.6, 5.95, 1.2);
+
+    private volatile long mask = 0;
+
+    private final StringPublisher zonePub = NetworkTableInstance.getDefault()
+        .getStringTopic("nav/zones").publish();
+
+    private long publishedMask = -1;
+
+    private boolean compiled = false;
+
+    private FieldZones() {}
+
+    /**
+     * looks up which zones the robot is in. Should be called once per cycle, before triggers are polled
+     */
+    public void update(Pose2d pose) {
+
+        if (!this.compiled) {
+
+            if (!FieldLayout.X.isReady()) return;
+
+            // once; a few thousand cells
+            this.index.compile(FieldLayout.X.getFieldLength(), FieldLayout.X.getFieldWidth(), CELL_SIZE);
+            this.compiled = true;
+        }
+
+        long m = this.index.lookup(pose.getX(), pose.getY(), AllianceCache.X.isRed());
+
+        this.mask = m;
+
+        // only build the string when membership changes
+        if (m != this.publishedMask) {
+
+            StringBuilder sb = new StringBuilder();
+
+            for (int z = 0; z < this.index.size(); ++z) {
+                if (ZoneIndex.contains(m, z)) {
+                    if (sb.length() > 0) sb.append(',');
+                    sb.append(this.index.getName(z));
+                }
+            }
+
+            this.zonePub.set(sb.toString());
+            this.publishedMask = m;
+        }
+    }
+
+    /**
+     * @return whether the robot was in {@code zone} at the last {@link #update(Pose2d)}
+     */
+    public boolean isIn(int zone) { return ZoneIndex.contains(this.mask, zone); }
+
+    /**
+     * @return a {@link Trigger} that is true while the robot is in {@code zone}
+     */
+    public Trigger in(int zone) { return new Trigger(() -> this.isIn(zone)); }
+}
@@ -0,0 +1,73 @@
+package frc.robot.subsystems.navdeps;
+
+import java.io.File;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gmail.frcteam1758.lib.util.DistanceField;
+
+import edu.wpi.first.wpilibj.Filesystem;
+
+/**
+ * the PathPlanner navgrid (deploy/pathplanner/navgrid.json), loaded on a background thread
+ * at boot and compiled into a {@link DistanceField} for teleop obstacle assist.
+ * <p>
+ * {@link #getField()} returns {@code null} until loading finishes
+ */
+public class NavGrid {
+
+    public static final NavGrid X = new NavGrid();
+
+    private volatile DistanceField field = null;
+
+    private Thread loader;
+
+    private NavGrid() {}
+
+    /**
+     * starts loading the navgrid on a background thread. Calling it more than once does nothing.
+     */
+    public synchronized void startLoading() {
+
+        if (this.loader != null) return;
+
+        this.loader = new Thread(this::load, "navgrid-loader");
+        this.loader.setDaemon(true);
+        this.loader.start();
+    }
+
+    private void load() {
+
+        JsonNode root;
+
+        try {
+            root = new ObjectMapper().readTree(
+                new File(Filesystem.getDeployDirectory(), "pathplanner/navgrid.json")
+            );
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+            return;
+        }
+
+        JsonNode rows = root.get("grid");
+
+        boolean[][] grid = new boolean[rows.size()][];
+
+        for (int r = 0; r < grid.length; ++r) {
+
+            JsonNode row = rows.get(r);
+            grid[r] = new boolean[row.size()];
+
+            for (int c = 0; c < grid[r].length; ++c) grid[r][c] = row.get(c).asBoolean();
+        }
+
+        // volatile write publishes the finished field to readers
+        this.field = new DistanceField(grid, root.get("nodeSizeMeters").asDouble());
+    }
+
+    /**
+     * @return the distance field, or {@code null} if it has not loaded yet
+     */
+    public DistanceField getField() { return this.field; }
+}
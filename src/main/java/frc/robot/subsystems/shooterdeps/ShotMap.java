@@ -0,0 +1,230 @@
+package frc.robot.subsystems.shooterdeps;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import frc.robot.subsystems.visiondeps.FieldLayout;
+
+/**
+ * interpolating table from distance to the hub to shooter setpoints, loaded from
+ * deploy/shotmap.csv on a background thread.
+ * <p>
+ * Columns are, in this order, distance (m), flywheel speed (motor rpm), feed delay after the shooter
+ * is ready (s) and time of flight (s). Rows may be in any order of distance; rows repeating a distance
+ * are dropped. Until the file loads, a short built-in table is used.
+ * <p>
+ * {@link #setDistance(double)} (called by {@link ShotSolver}) binary-searches the table once;
+ * the getters then interpolate within the segment it found. None of it allocates.
+ * Main-thread only, apart from loading
+ */
+public class ShotMap {
+
+    public static final ShotMap X = new ShotMap();
+
+    private static final int DISTANCE = 0, RPM = 1, FEED_DELAY = 2, TIME_OF_FLIGHT = 3, COLUMNS = 4;
+
+    // tags around each hub, averaged for its center
+    private static final int[]
+        BLUE_HUB_TAGS = {18, 19, 20, 21, 24, 25, 26, 27},
+        RED_HUB_TAGS  = { 2,  3,  4,  5,  8,  9, 10, 11}
+    ;
+
+    // hub centers (blue-origin meters) until the field layout has loaded
+    private double blueHubX = 4.626, blueHubY = 4.035, redHubX = 11.915, redHubY = 4.035;
+
+    private boolean hubFromTags = false;
+
+    // table[column][row]; replaced in one volatile write once the file loads
+    private volatile double[][] table = {
+        {1.5 , 3.0 , 4.5 },
+        {3300, 3850, 4600},
+        {0.0 , 0.02, 0.06},
+        {0.62, 0.82, 1.06}
+    };
+
+    // the table and segment found by the last lookup
+    private double[][] current = this.table;
+    private int segment = 0;
+    private double fraction = 0;
+
+    private double distance = 0;
+
+    private Thread loader;
+
+    private ShotMap() {}
+
+    /**
+     * starts loading the table on a background thread. Calling it more than once does nothing.
+     */
+    public synchronized void startLoading() {
+
+        if (this.loader != null) return;
+
+        this.loader = new Thread(this::load, "shotmap-loader");
+        this.loader.setDaemon(true);
+        this.loader.start();
+    }
+
+    private void load() {
+
+        List<String> lines;
+
+        try {
+            lines = Files.readAllLines(new File(Filesystem.getDeployDirectory(), "shotmap.csv").toPath());
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+            return;
+        }
+
+        List<double[]> rows = new ArrayList<>();
+
+        for (String line : lines) {
+
+            line = line.strip();
+
+            // comments, blank lines and the header
+            if (line.isEmpty() || line.startsWith("#") || Character.isLetter(line.charAt(0))) continue;
+
+            String[] cells = line.split(",");
+
+            if (cells.length < COLUMNS) {
+                DriverStation.reportWarning("shotmap.csv: skipping short row \"" + line + "\"", false);
+                continue;
+            }
+
+            double[] row = new double[COLUMNS];
+
+            try {
+                for (int c = 0; c < COLUMNS; ++c) row[c] = Double.parseDouble(cells[c].strip());
+            }
+            catch (NumberFormatException e) {
+                DriverStation.reportWarning("shotmap.csv: skipping unreadable row \"" + line + "\"", false);
+                continue;
+            }
+
+            rows.add(row);
+        }
+
+        rows.sort((a, b) -> Double.compare(a[DISTANCE], b[DISTANCE]));
+
+        // interpolating between two rows at the same distance would divide by zero
+        for (int r = rows.size() - 1; r > 0; --r) {
+            if (rows.get(r)[DISTANCE] == rows.get(r - 1)[DISTANCE]) {
+                DriverStation.reportWarning("shotmap.csv: dropping repeated distance " + rows.get(r)[DISTANCE], false);
+                rows.remove(r);
+            }
+        }
+
+        if (rows.size() < 2) {
+            DriverStation.reportWarning("shotmap.csv: needs at least two rows, keeping the built-in table", false);
+            return;
+        }
+
+        double[][] t = new double[COLUMNS][rows.size()];
+
+        for (int r = 0; r < rows.size(); ++r) {
+            for (int c = 0; c < COLUMNS; ++c) t[c][r] = rows.get(r)[c];
+        }
+
+        this.table = t;
+    }
+
+    /**
+     * looks up the setpoints for a distance, clamped to the ends of the table
+     * @param d distance to the hub center, in meters
+     */
+    public void setDistance(double d) {
+
+        double[][] t = this.table;
+        double[] ds = t[DISTANCE];
+
+        this.current = t;
+        this.distance = d;
+
+        int n = ds.length;
+
+        if (d <= ds[0]) {
+            this.segment = 0;
+            this.fraction = 0;
+            return;
+        }
+        if (d >= ds[n - 1]) {
+            this.segment = n - 2;
+            this.fraction = 1;
+            return;
+        }
+
+        // insertion point - 1 is the row below d
+        int i = Arrays.binarySearch(ds, d);
+        int lo = i >= 0 ? Math.min(i, n - 2) : -i - 2;
+
+        this.segment = lo;
+        this.fraction = (d - ds[lo]) / (ds[lo + 1] - ds[lo]);
+    }
+
+    /** @return the distance from the last lookup, in meters */
+    public double getDistance() { return this.distance; }
+
+    /** @return the flywheel speed for the last lookup, in motor rpm */
+    public double getRpm() { return this.interpolate(RPM); }
+
+    /** @return how long to wait after the shooter is ready before feeding, in seconds */
+    public double getFeedDelay() { return this.interpolate(FEED_DELAY); }
+
+    /** @return the time of flight for the last lookup, in seconds */
+    public double getTimeOfFlight() { return this.interpolate(TIME_OF_FLIGHT); }
+
+    /** @return the x of a hub center (blue-origin meters) */
+    public double getHubX(boolean red) { this.updateHub(); return red ? this.redHubX : this.blueHubX; }
+
+    /** @return the y of a hub center (blue-origin meters) */
+    public double getHubY(boolean red) { this.updateHub(); return red ? this.redHubY : this.blueHubY; }
+
+    private double interpolate(int column) {
+        double[] v = this.current[column];
+        return v[this.segment] + (v[this.segment + 1] - v[this.segment]) * this.fraction;
+    }
+
+    // replaces the built-in hub centers with tag averages once the layout is ready
+    private void updateHub() {
+
+        if (this.hubFromTags || !FieldLayout.X.isReady()) return;
+
+        this.hubFromTags = true;
+
+        FieldLayout layout = FieldLayout.X;
+
+        double x = 0, y = 0;
+        int n = 0;
+
+        for (int id : BLUE_HUB_TAGS) {
+            if (!layout.hasTag(id)) continue;
+            x += layout.getTagX(id);
+            y += layout.getTagY(id);
+            ++n;
+        }
+        if (n > 0) {
+            this.blueHubX = x / n;
+            this.blueHubY = y / n;
+        }
+
+        x = 0; y = 0; n = 0;
+
+        for (int id : RED_HUB_TAGS) {
+            if (!layout.hasTag(id)) continue;
+            x += layout.getTagX(id);
+            y += layout.getTagY(id);
+            ++n;
+        }
+        if (n > 0) {
+            this.redHubX = x / n;
+            this.redHubY = y / n;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package frc.robot.subsystems.shooterdeps;
+
+import com.gmail.frcteam1758.lib.util.AllianceCache;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+
+/**
+ * aims shots while the robot is moving.
+ * <p>
+ * A game piece leaves with the robot's velocity, so instead of the hub the robot aims at a
+ * virtual target, the hub moved back along the robot's velocity by the shot's time of flight.
+ * Time of flight depends on distance (see {@link ShotMap}), and distance depends on the
+ * virtual target, so the two are iterated, at most {@link #ITERATIONS} times per cycle.
+ * <p>
+ * {@link #update(Pose2d, ChassisSpeeds)} should be called once per cycle; it leaves the
+ * {@link ShotMap} looked up at the virtual target's distance. Does not allocate. Main-thread only
+ */
+public class ShotSolver {
+
+    public static final ShotSolver X = new ShotSolver();
+
+    /** iteration budget per cycle; converges in 2-3 at driving speeds */
+    public static final int ITERATIONS = 4;
+
+    /** change in distance (m) below which the solution counts as converged */
+    private static final double CONVERGED = 0.005;
+
+    /** direction the shooter fires, relative to the robot's front, in radians */
+    private static final double SHOOTER_FACING = 0;
+
+    private double heading = 0, rpm = 0, feedDelay = 0, distance = 0;
+
+    private double targetX = 0, targetY = 0;
+
+    private int iterations = 0;
+
+    private ShotSolver() {}
+
+    /**
+     * solves for the current pose and speeds
+     * @param pose the robot's fused field pose
+     * @param robotSpeeds the robot's measured speeds, robot-relative (ex. {@code DriveSubsystem.getSpeeds()})
+     */
+    public void update(Pose2d pose, ChassisSpeeds robotSpeeds) {
+
+        boolean red = AllianceCache.X.isRed();
+
+        ShotMap map = ShotMap.X;
+
+        double hubX = map.getHubX(red), hubY = map.getHubY(red);
+
+        double x = pose.getX(), y = pose.getY();
+
+        // field-relative velocity
+        double cos = pose.getRotation().getCos(), sin = pose.getRotation().getSin();
+
+        double vx = robotSpeeds.vxMetersPerSecond * cos - robotSpeeds.vyMetersPerSecond * sin;
+        double vy = robotSpeeds.vxMetersPerSecond * sin + robotSpeeds.vyMetersPerSecond * cos;
+
+        // start from the standing shot
+        double tx = hubX, ty = hubY;
+        double d = Math.hypot(tx - x, ty - y);
+
+        map.setDistance(d);
+
+        int i = 0;
+
+        while (i < ITERATIONS) {
+
+            ++i;
+
+            double tof = map.getTimeOfFlight();
+
+            tx = hubX - vx * tof;
+            ty = hubY - vy * tof;
+
+            double next = Math.hypot(tx - x, ty - y);
+
+            map.setDistance(next);
+
+            boolean converged = Math.abs(next - d) < CONVERGED;
+
+            d = next;
+
+            if (converged) break;
+        }
+
+        this.iterations = i;
+
+        this.targetX = tx;
+        this.targetY = ty;
+        this.distance = d;
+
+        this.heading = Math.atan2(ty - y, tx - x) - SHOOTER_FACING;
+        this.rpm = map.getRpm();
+        this.feedDelay = map.getFeedDelay();
+    }
+
+    /** @return the robot heading to shoot at, in radians, in the pose's (field) frame */
+    public double getHeading() { return this.heading; }
+
+    /** @return the flywheel speed for the shot, in motor rpm */
+    public double getRpm() { return this.rpm; }
+
+    /** @return how long to wait after the shooter is ready before feeding, in seconds */
+    public double getFeedDelay() { return this.feedDelay; }
+
+    /** @return the distance to the virtual target, in meters */
+    public double getDistance() { return this.distance; }
+
+    public double getTargetX() { return this.targetX; }
+
+    public double getTargetY() { return this.targetY; }
+
+    /** @return how many iterations the last solve took */
+    public int getIterations() { return this.iterations; }
+}
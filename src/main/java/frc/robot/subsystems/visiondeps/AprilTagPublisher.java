@@ -154,9 +154,9 @@ public class AprilTagPublisher {
             table.getEntry("cam_to_tag").setDoubleArray(new double[] {});
         }
 
-        double maxDistance = table.getEntry("tune/max_distance_m").getDouble(5.0);
-        double maxAmbiguity = table.getEntry("tune/max_ambiguity").getDouble(0.25);
-        double minConfidence = table.getEntry("tune/min_confidence").getDouble(0.5);
+        double maxDistance = VisionConstants.MAX_DISTANCE_M.get();
+        double maxAmbiguity = VisionConstants.MAX_AMBIGUITY.get();
+        double minConfidence = VisionConstants.MIN_CONFIDENCE.get();
 
         boolean visionOK = result.hasTargets()
             && (bestForTelemetry != null)
@@ -186,8 +186,9 @@ public class AprilTagPublisher {
 
         table.getEntry("last_filter_reason").setString(est.strategy.toString());
 
-        // Compute latency in milliseconds between now and the pose timestamp
-        double latencyMs = (System.currentTimeMillis() / 1000.0 - est.timestampSeconds) * 1000.0;
+        // Compute latency in milliseconds between now and the pose timestamp.
+        // Both are on the FPGA time base (PhotonLib converts capture time to it).
+        double latencyMs = (VisionLatency.now() - est.timestampSeconds) * 1000.0;
         table.getEntry("latency_ms").setDouble(r3(latencyMs));
         table.getEntry("timestamp_seconds").setDouble(est.timestampSeconds);
     }
@@ -0,0 +1,121 @@
+package frc.robot.subsystems.visiondeps;
+
+import edu.wpi.first.apriltag.AprilTag;
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.apriltag.AprilTagFields;
+
+/**
+ * AprilTag field layout, loaded on a background thread at boot and compiled into
+ * flat arrays indexed by fiducial id.
+ * <p>
+ * Nothing here is usable until {@link #isReady()} returns {@code true}. After that,
+ * every lookup is a plain array read (no {@code Optional}, no map). Pose estimation still
+ * needs the full {@link #getLayout()}; the arrays serve hub centers ({@code ShotMap}) and
+ * vision distance gating ({@link VisionMeasurement}), and the field size is what red-alliance
+ * positions are mirrored across
+ */
+public class FieldLayout {
+
+    public static final FieldLayout X = new FieldLayout();
+
+    private volatile boolean ready = false;
+
+    private AprilTagFieldLayout layout;
+
+    private double fieldLength, fieldWidth;
+
+    // indexed by fiducial id
+    private boolean[] present = new boolean[0];
+
+    private double[] tagX, tagY;
+
+    private Thread loader;
+
+    private FieldLayout() {}
+
+    /**
+     * starts loading the layout on a background thread. Should be called as early
+     * as possible during boot. Calling it more than once does nothing.
+     */
+    public synchronized void startLoading() {
+
+        if (this.loader != null) return;
+
+        this.loader = new Thread(this::load, "field-layout-loader");
+        this.loader.setDaemon(true);
+        this.loader.start();
+    }
+
+    private void load() {
+
+        AprilTagFieldLayout l;
+
+        try {
+            l = AprilTagFields.k2026RebuiltAndymark.loadAprilTagLayoutField();
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+            return;
+        }
+
+        int maxId = 0;
+        for (AprilTag t : l.getTags()) maxId = Math.max(maxId, t.ID);
+
+        boolean[] present = new boolean[maxId + 1];
+
+        double[] x = new double[maxId + 1], y = new double[maxId + 1];
+
+        for (AprilTag t : l.getTags()) {
+
+            int i = t.ID;
+
+            present[i] = true;
+
+            x[i] = t.pose.getX();
+            y[i] = t.pose.getY();
+        }
+
+        this.layout = l;
+        this.fieldLength = l.getFieldLength();
+        this.fieldWidth = l.getFieldWidth();
+
+        this.present = present;
+        this.tagX = x;
+        this.tagY = y;
+
+        // volatile write publishes everything above to readers
+        this.ready = true;
+    }
+
+    /**
+     * @return whether the layout has finished loading
+     */
+    public boolean isReady() { return this.ready; }
+
+    /**
+     * @return the underlying layout, or {@code null} if it has not loaded yet
+     */
+    public AprilTagFieldLayout getLayout() { return this.ready ? this.layout : null; }
+
+    public double getFieldLength() { return this.fieldLength; }
+
+    public double getFieldWidth() { return this.fieldWidth; }
+
+    /**
+     * @return whether {@code id} is a tag on this field (always {@code false} before loading finishes)
+     */
+    public boolean hasTag(int id) {
+        boolean[] p = this.present;
+        return this.ready && id >= 0 && id < p.length && p[id];
+    }
+
+    public double getTagX(int id) { return this.tagX[id]; }
+    public double getTagY(int id) { return this.tagY[id]; }
+
+    /**
+     * @return the planar distance from ({@code x}, {@code y}) to tag {@code id}
+     */
+    public double distanceToTag(int id, double x, double y) {
+        return Math.hypot(this.tagX[id] - x, this.tagY[id] - y);
+    }
+}
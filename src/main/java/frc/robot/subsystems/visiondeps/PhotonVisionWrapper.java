@@ -1,6 +1,5 @@
 package frc.robot.subsystems.visiondeps;
 
-import java.io.IOException;
 import java.util.Optional;
 import org.photonvision.EstimatedRobotPose;
 import org.photonvision.PhotonCamera;
@@ -8,11 +7,8 @@ import org.photonvision.PhotonPoseEstimator;
 import org.photonvision.PhotonPoseEstimator.PoseStrategy;
 import org.photonvision.targeting.PhotonPipelineResult;
 
-import edu.wpi.first.apriltag.AprilTagFieldLayout;
-import edu.wpi.first.apriltag.AprilTagFields;
-
 import edu.wpi.first.math.geometry.Pose2d;
-import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.wpilibj.RobotBase;
 
 /**
  * PhotonVision wrapper that exposes:
@@ -20,39 +16,58 @@ import edu.wpi.first.math.geometry.Transform3d;
  *  - getEstimatedGlobalPose(prevPose) convenience method (reads latest result internally)
  *  - getEstimatedGlobalPose(prevPose, result) preferred overload that uses a provided result
  *
+ * The field layout is loaded in the background by {@link FieldLayout}; until it is ready,
+ * pose estimation returns Optional.empty().
+ *
+ * In simulation, the camera is driven by a {@link SimulatedCamera}; call updateSim() every loop.
+ *
  * Keep this class in its own file: PhotonVisionWrapper.java
  */
 public class PhotonVisionWrapper {
 
     private final PhotonCamera camera;
-    private final PhotonPoseEstimator poseEstimator;
+    // created once the field layout has loaded
+    private PhotonPoseEstimator poseEstimator;
+
+    // null unless running in simulation
+    private final SimulatedCamera simCamera;
 
-    public static final PhotonVisionWrapper X = PhotonVisionWrapper.create();
+    public static final PhotonVisionWrapper X = new PhotonVisionWrapper();
 
-    private PhotonVisionWrapper() throws IOException {
+    private PhotonVisionWrapper() {
         camera = new PhotonCamera(VisionConstants.CAMERA_NAME);
 
-        AprilTagFieldLayout fieldLayout =
-            AprilTagFields.k2026RebuiltAndymark.loadAprilTagLayoutField();
+        FieldLayout.X.startLoading();
 
-        Transform3d robotToCam = VisionConstants.ROBOT_TO_CAM;
+        simCamera = RobotBase.isSimulation() ? new SimulatedCamera(camera) : null;
+    }
 
-        // Use the constructor available in your PhotonVision version.
-        // If your PhotonVision library requires a different signature, adjust accordingly.
-        poseEstimator = new PhotonPoseEstimator(
-            fieldLayout,
-            PoseStrategy.MULTI_TAG_PNP_ON_COPROCESSOR,
-            robotToCam
-        );
+    /**
+     * @return the pose estimator, or null if the field layout has not loaded yet
+     */
+    private PhotonPoseEstimator getPoseEstimator() {
+        if (poseEstimator == null && FieldLayout.X.isReady()) {
+            // Use the constructor available in your PhotonVision version.
+            // If your PhotonVision library requires a different signature, adjust accordingly.
+            poseEstimator = new PhotonPoseEstimator(
+                FieldLayout.X.getLayout(),
+                PoseStrategy.MULTI_TAG_PNP_ON_COPROCESSOR,
+                VisionConstants.ROBOT_TO_CAM
+            );
+        }
+        return poseEstimator;
     }
 
-    private static PhotonVisionWrapper create() {
-        try {
-            return new PhotonVisionWrapper();
-        } catch (IOException e) {
-            e.printStackTrace();
+    /** Advances the simulated camera (does nothing on a real robot). */
+    public void updateSim(Pose2d robotPose) {
+        if (simCamera != null) {
+            simCamera.update(robotPose);
         }
-        return null;
+    }
+
+    /** Selects the pipeline the coprocessor runs. */
+    public void setPipelineIndex(int index) {
+        camera.setPipelineIndex(index);
     }
 
     /** Cheap, non-blocking read of the latest pipeline result. */
@@ -68,14 +83,19 @@ public class PhotonVisionWrapper {
 
     /**
      * Preferred: use the PhotonPipelineResult you already read this loop to avoid races.
-     * Returns Optional.empty() if no targets or estimator cannot produce a pose.
+     * Returns Optional.empty() if no targets, the layout is still loading, or estimator cannot produce a pose.
      */
     public Optional<EstimatedRobotPose> getEstimatedGlobalPose(Pose2d prevEstimate, PhotonPipelineResult result) {
         if (result == null || !result.hasTargets()) {
             return Optional.empty();
         }
 
-        poseEstimator.setReferencePose(prevEstimate);
-        return poseEstimator.update(result);
+        PhotonPoseEstimator estimator = getPoseEstimator();
+        if (estimator == null) {
+            return Optional.empty();
+        }
+
+        estimator.setReferencePose(prevEstimate);
+        return estimator.update(result);
     }
 }
\ No newline at end of file
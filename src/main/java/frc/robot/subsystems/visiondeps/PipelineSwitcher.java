@@ -0,0 +1,124 @@
+package frc.robot.subsystems.visiondeps;
+
+import org.photonvision.targeting.PhotonPipelineResult;
+import org.photonvision.targeting.PhotonTrackedTarget;
+
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.IntegerPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+
+/**
+ * picks the camera pipeline from the distance to the nearest visible tag: a low-res,
+ * high-FPS pipeline up close and a high-res pipeline far away (or when nothing is visible).
+ * <p>
+ * Switching uses hysteresis ({@link VisionConstants#NEAR_ENTER_M}/{@link VisionConstants#NEAR_EXIT_M})
+ * and a minimum dwell time so the camera does not thrash at the boundary.
+ * <p>
+ * On every switch, the measured FPS and average coprocessor latency of the pipeline being left are
+ * published to "vision/pipeline/&lt;near|far&gt;" as {fps, latency ms}, so the effect of each pipeline
+ * can be compared. Frames in the first {@link #SETTLE_TIME} after a switch are not counted.
+ * <p>
+ * {@link #update(PhotonPipelineResult, double)} is called by the {@link VisionWorker} for every new frame.
+ */
+public class PipelineSwitcher {
+
+    private static final double MIN_DWELL = 0.5, SETTLE_TIME = 0.25;
+
+    // fall back to the far pipeline after this long without a target
+    private static final double LOST_TIMEOUT = 0.5;
+
+    private final PhotonVisionWrapper camera;
+
+    private boolean near = false;
+
+    private double switchTime = Double.NEGATIVE_INFINITY, lastTargetTime = Double.NEGATIVE_INFINITY;
+
+    private int frames = 0;
+    private double latencySum = 0;
+
+    private int switches = 0;
+
+    private final DoubleArrayPublisher nearStats, farStats;
+    private final IntegerPublisher active, switchCount;
+
+    private final double[] out = new double[2];
+
+    public PipelineSwitcher(PhotonVisionWrapper camera) {
+
+        this.camera = camera;
+
+        NetworkTable table = NetworkTableInstance.getDefault().getTable("vision").getSubTable("pipeline");
+
+        this.nearStats   = table.getDoubleArrayTopic("near").publish();
+        this.farStats    = table.getDoubleArrayTopic("far").publish();
+        this.active      = table.getIntegerTopic("active").publish();
+        this.switchCount = table.getIntegerTopic("switches").publish();
+
+        this.select(false, 0);
+    }
+
+    /**
+     * @param result a new camera result
+     * @param now the current time, from {@link VisionLatency#now()}
+     */
+    public void update(PhotonPipelineResult result, double now) {
+
+        double sinceSwitch = now - this.switchTime;
+
+        if (sinceSwitch > SETTLE_TIME) {
+            ++this.frames;
+            this.latencySum += result.metadata.getLatencyMillis();
+        }
+
+        double nearest = Double.POSITIVE_INFINITY;
+
+        for (PhotonTrackedTarget t : result.getTargets()) {
+            nearest = Math.min(nearest, t.getBestCameraToTarget().getTranslation().getNorm());
+        }
+
+        if (nearest != Double.POSITIVE_INFINITY) {
+            this.lastTargetTime = now;
+        }
+
+        if (sinceSwitch < MIN_DWELL) return;
+
+        if (!this.near && nearest < VisionConstants.NEAR_ENTER_M) {
+            this.select(true, now);
+        }
+        else if (this.near && (
+            (nearest != Double.POSITIVE_INFINITY && nearest > VisionConstants.NEAR_EXIT_M)
+            || now - this.lastTargetTime > LOST_TIMEOUT
+        )) {
+            this.select(false, now);
+        }
+    }
+
+    /** @return whether the near (low-res, high-FPS) pipeline is selected */
+    public boolean isNear() { return this.near; }
+
+    private void select(boolean near, double now) {
+
+        if (this.frames > 0) {
+
+            double counted = (now - this.switchTime) - SETTLE_TIME;
+
+            this.out[0] = counted > 0 ? this.frames / counted : 0;
+            this.out[1] = this.latencySum / this.frames;
+
+            (this.near ? this.nearStats : this.farStats).set(this.out);
+        }
+
+        this.near = near;
+        this.switchTime = now;
+        this.frames = 0;
+        this.latencySum = 0;
+
+        int index = near ? VisionConstants.NEAR_PIPELINE : VisionConstants.FAR_PIPELINE;
+
+        this.camera.setPipelineIndex(index);
+
+        this.active.set(index);
+        this.switchCount.set(this.switches++);
+    }
+}
@@ -0,0 +1,95 @@
+package frc.robot.subsystems.visiondeps;
+
+import org.photonvision.PhotonCamera;
+import org.photonvision.simulation.PhotonCameraSim;
+import org.photonvision.simulation.SimCameraProperties;
+import org.photonvision.simulation.VisionSystemSim;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * stand-in for the real camera when running in simulation. Renders the field's
+ * AprilTags from the simulated drivetrain pose and publishes results to the same
+ * NT topics the real camera would, so {@link PhotonVisionWrapper} and everything
+ * downstream runs unchanged.
+ * <p>
+ * Video streams are disabled so it can run on a headless machine.
+ */
+public class SimulatedCamera {
+
+    private final VisionSystemSim visionSim = new VisionSystemSim("main");
+
+    private final PhotonCameraSim cameraSim;
+
+    private boolean hasTags = false;
+
+    /**
+     * @param camera the camera to simulate
+     * @param fps frame rate
+     * @param avgLatencyMs average capture-to-publish latency
+     * @param latencyStdDevMs standard deviation of the latency
+     * @param avgErrorPx average corner detection noise, in pixels
+     * @param errorStdDevPx standard deviation of the corner detection noise, in pixels
+     */
+    public SimulatedCamera(
+        PhotonCamera camera,
+        double fps,
+        double avgLatencyMs,
+        double latencyStdDevMs,
+        double avgErrorPx,
+        double errorStdDevPx
+    ) {
+        SimCameraProperties props = new SimCameraProperties();
+
+        props.setCalibration(
+            VisionConstants.SIM_RES_WIDTH,
+            VisionConstants.SIM_RES_HEIGHT,
+            Rotation2d.fromDegrees(VisionConstants.SIM_FOV_DEG)
+        );
+        props.setCalibError(avgErrorPx, errorStdDevPx);
+        props.setFPS(fps);
+        props.setAvgLatencyMs(avgLatencyMs);
+        props.setLatencyStdDevMs(latencyStdDevMs);
+
+        this.cameraSim = new PhotonCameraSim(camera, props);
+
+        this.cameraSim.enableRawStream(false);
+        this.cameraSim.enableProcessedStream(false);
+        this.cameraSim.enableDrawWireframe(false);
+
+        this.visionSim.addCamera(this.cameraSim, VisionConstants.ROBOT_TO_CAM);
+    }
+
+    /**
+     * constructs a {@link SimulatedCamera} using the defaults in {@link VisionConstants}
+     * @param camera the camera to simulate
+     */
+    public SimulatedCamera(PhotonCamera camera) {
+        this(
+            camera,
+            VisionConstants.SIM_FPS,
+            VisionConstants.SIM_AVG_LATENCY_MS,
+            VisionConstants.SIM_LATENCY_STDDEV_MS,
+            VisionConstants.SIM_AVG_ERROR_PX,
+            VisionConstants.SIM_ERROR_STDDEV_PX
+        );
+    }
+
+    /**
+     * advances the simulation. Should be called once per simulation loop.
+     * @param robotPose the simulated drivetrain pose
+     */
+    public void update(Pose2d robotPose) {
+
+        if (!this.hasTags) {
+            // tags can only be added once the layout has finished loading
+            if (!FieldLayout.X.isReady()) return;
+
+            this.visionSim.addAprilTags(FieldLayout.X.getLayout());
+            this.hasTags = true;
+        }
+
+        this.visionSim.update(robotPose);
+    }
+}
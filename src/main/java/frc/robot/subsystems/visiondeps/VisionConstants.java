@@ -1,5 +1,7 @@
 package frc.robot.subsystems.visiondeps;
 
+import com.gmail.frcteam1758.lib.util.Tunable;
+
 import edu.wpi.first.math.geometry.Rotation3d;
 import edu.wpi.first.math.geometry.Transform3d;
 import edu.wpi.first.math.geometry.Translation3d;
@@ -12,4 +14,37 @@ public class VisionConstants {
     );
 
     public static final String CAMERA_NAME = "Arducam_OV9782_USB_Camera";
+
+    // detection/fusion thresholds, adjustable from the dashboard under "apriltags/tune"
+    public static final Tunable
+        MAX_DISTANCE_M = new Tunable("apriltags/tune", "max_distance_m", 5.0),
+        MAX_AMBIGUITY  = new Tunable("apriltags/tune", "max_ambiguity" , 0.25),
+        MIN_CONFIDENCE = new Tunable("apriltags/tune", "min_confidence", 0.5)
+    ;
+
+    // pipeline indices and switching distances (see PipelineSwitcher)
+    public static final int
+        FAR_PIPELINE  = 0, // high resolution
+        NEAR_PIPELINE = 1  // low resolution, high FPS
+    ;
+
+    public static final double
+        NEAR_ENTER_M = 2.0,
+        NEAR_EXIT_M  = 2.6
+    ;
+
+    // simulated camera (see SimulatedCamera)
+    public static final int
+        SIM_RES_WIDTH  = 1280,
+        SIM_RES_HEIGHT = 800
+    ;
+
+    public static final double
+        SIM_FOV_DEG           = 70,
+        SIM_FPS               = 30,
+        SIM_AVG_LATENCY_MS    = 35,
+        SIM_LATENCY_STDDEV_MS = 5,
+        SIM_AVG_ERROR_PX      = 0.25,
+        SIM_ERROR_STDDEV_PX   = 0.08
+    ;
 }
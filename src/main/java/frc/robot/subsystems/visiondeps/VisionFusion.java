@@ -0,0 +1,158 @@
+package frc.robot.subsystems.visiondeps;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.Nat;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import edu.wpi.first.networktables.IntegerArrayPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.StringPublisher;
+
+/**
+ * decides whether a {@link VisionMeasurement} should be fused into the drivetrain pose
+ * estimator, and with what standard deviations.
+ * <p>
+ * Trust falls off with distance squared, rises with the number of tags, and falls with
+ * robot speed (motion blur, timestamp error). Measurements are rejected outright when they
+ * break the "apriltags/tune/*" thresholds, or when the difference from the current estimate
+ * (the innovation) is statistically implausible given both uncertainties.
+ * <p>
+ * Rejection reasons are published to "vision/fusion".
+ */
+public class VisionFusion {
+
+    public static final VisionFusion X = new VisionFusion();
+
+    public enum Result {
+        ACCEPTED,
+        NO_TAGS,
+        TOO_FAR,
+        AMBIGUOUS,
+        INNOVATION,
+        OUT_OF_FIELD
+    }
+
+    // std dev of a single tag at 1 m, standing still
+    private static final double BASE_XY_STDDEV = 0.08, BASE_THETA_STDDEV = 0.12;
+
+    // single-tag heading is not worth fusing; the gyro is better
+    private static final double SINGLE_TAG_THETA_STDDEV = 1e6;
+
+    // extra std dev per (m/s) and per (rad/s)
+    private static final double SPEED_FACTOR = 0.5, TURN_FACTOR = 0.3;
+
+    // odometry uncertainty: base, growth per second since the last accepted measurement, cap
+    private static final double ODOM_XY_STDDEV = 0.05, ODOM_DRIFT_PER_S = 0.1, ODOM_MAX_STDDEV = 2.0;
+    private static final double ODOM_THETA_STDDEV = 0.05;
+
+    // chi-squared, 3 degrees of freedom, 99.9%
+    private static final double INNOVATION_GATE = 16.27;
+
+    // after this long without an accepted measurement, multi-tag estimates skip the innovation gate
+    private static final double RECOVERY_TIME = 2.0;
+
+    private static final double FIELD_MARGIN = 0.5;
+
+    // keeps very close tags from being trusted absolutely
+    private static final double MIN_DISTANCE_SCALE = 0.25;
+
+    private final Matrix<N3, N1> stdDevs = new Matrix<>(Nat.N3(), Nat.N1());
+
+    private final StringPublisher lastReason;
+    private final IntegerArrayPublisher counts;
+
+    private final long[] resultCounts = new long[Result.values().length];
+
+    private double lastAcceptedTime = Double.NEGATIVE_INFINITY;
+
+    private VisionFusion() {
+
+        NetworkTable out = NetworkTableInstance.getDefault().getTable("vision").getSubTable("fusion");
+
+        this.lastReason = out.getStringTopic("last_reason").publish();
+        this.counts = out.getIntegerArrayTopic("result_counts").publish();
+    }
+
+    /**
+     * @param m the measurement
+     * @param current the current estimated pose
+     * @param speed the robot's translational speed, in m/s
+     * @param turnRate the robot's rotational speed, in rad/s
+     * @return {@link Result#ACCEPTED} if the measurement should be fused (using {@link #getStdDevs()}),
+     * otherwise the reason it was rejected
+     */
+    public Result evaluate(VisionMeasurement m, Pose2d current, double speed, double turnRate) {
+        return this.log(this.check(m, current, Math.abs(speed), Math.abs(turnRate)));
+    }
+
+    /**
+     * @return the standard deviations (x, y, theta) to fuse the last accepted measurement with.
+     * The same matrix is reused for every call to {@link #evaluate}.
+     */
+    public Matrix<N3, N1> getStdDevs() { return this.stdDevs; }
+
+    private Result check(VisionMeasurement m, Pose2d current, double speed, double turnRate) {
+
+        if (m.tagCount == 0) return Result.NO_TAGS;
+
+        if (m.avgDistance > VisionConstants.MAX_DISTANCE_M.get()) return Result.TOO_FAR;
+
+        if (m.tagCount == 1 && m.maxAmbiguity > VisionConstants.MAX_AMBIGUITY.get()) return Result.AMBIGUOUS;
+
+        if (FieldLayout.X.isReady() && (
+            m.pose.getX() < -FIELD_MARGIN || m.pose.getX() > FieldLayout.X.getFieldLength() + FIELD_MARGIN ||
+            m.pose.getY() < -FIELD_MARGIN || m.pose.getY() > FieldLayout.X.getFieldWidth()  + FIELD_MARGIN
+        )) {
+            return Result.OUT_OF_FIELD;
+        }
+
+        double distanceScale = Math.max(m.avgDistance * m.avgDistance / m.tagCount, MIN_DISTANCE_SCALE);
+
+        double xy = BASE_XY_STDDEV * distanceScale * (1 + SPEED_FACTOR * speed + TURN_FACTOR * turnRate);
+        double theta = m.tagCount > 1
+            ? BASE_THETA_STDDEV * distanceScale * (1 + TURN_FACTOR * turnRate)
+            : SINGLE_TAG_THETA_STDDEV;
+
+        double sinceAccepted = m.timestampSeconds - this.lastAcceptedTime;
+
+        if (!(m.tagCount > 1 && sinceAccepted > RECOVERY_TIME)) {
+
+            double odomXY = Math.min(ODOM_XY_STDDEV + ODOM_DRIFT_PER_S * sinceAccepted, ODOM_MAX_STDDEV);
+
+            double varXY = xy * xy + odomXY * odomXY;
+            double varTheta = theta * theta + ODOM_THETA_STDDEV * ODOM_THETA_STDDEV;
+
+            double dx = m.pose.getX() - current.getX();
+            double dy = m.pose.getY() - current.getY();
+            double dTheta = Math.IEEEremainder(
+                m.pose.getRotation().getRadians() - current.getRotation().getRadians(), 2 * Math.PI
+            );
+
+            double mahalanobis = (dx * dx + dy * dy) / varXY + dTheta * dTheta / varTheta;
+
+            if (mahalanobis > INNOVATION_GATE) return Result.INNOVATION;
+        }
+
+        this.stdDevs.set(0, 0, xy);
+        this.stdDevs.set(1, 0, xy);
+        this.stdDevs.set(2, 0, theta);
+
+        this.lastAcceptedTime = m.timestampSeconds;
+
+        return Result.ACCEPTED;
+    }
+
+    private Result log(Result r) {
+
+        ++this.resultCounts[r.ordinal()];
+
+        this.counts.set(this.resultCounts);
+
+        if (r != Result.ACCEPTED) {
+            this.lastReason.set(r.name());
+        }
+        return r;
+    }
+}
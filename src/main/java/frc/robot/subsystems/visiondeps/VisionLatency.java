@@ -0,0 +1,124 @@
+package frc.robot.subsystems.visiondeps;
+
+import org.photonvision.targeting.PhotonPipelineResult;
+
+import com.gmail.frcteam1758.lib.util.Histogram;
+
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * tracks where vision latency comes from. Every timestamp here is on the FPGA time base
+ * ({@link Timer#getFPGATimestamp()}), which is also what PhotonLib converts capture times to
+ * and what the pose estimator expects.
+ * <p>
+ * stages:
+ *  - coprocessor: camera capture -> result published by PhotonVision
+ *  - transport:   published -> read on the roboRIO
+ *  - estimation:  read -> pose estimate done
+ *  - fusion:      estimate done -> added to the drivetrain pose estimator
+ *  - total:       camera capture -> added to the drivetrain pose estimator
+ * <p>
+ * each stage is published to "apriltags/latency/&lt;stage&gt;" as {p50, p95, max} in ms,
+ * at {@link #PUBLISH_PERIOD} (the histograms are cleared after each publish)
+ * <p>
+ * frames and estimates are recorded from the {@link VisionWorker} thread, so every method is synchronized
+ */
+public class VisionLatency {
+
+    public static final VisionLatency X = new VisionLatency();
+
+    public static final double PUBLISH_PERIOD = 0.5;
+
+    private static final String[] STAGES = {"coprocessor", "transport", "estimation", "fusion", "total"};
+
+    private static final int COPROCESSOR = 0, TRANSPORT = 1, ESTIMATION = 2, FUSION = 3, TOTAL = 4;
+
+    private final Histogram[] histograms = new Histogram[STAGES.length];
+
+    private final DoubleArrayPublisher[] publishers = new DoubleArrayPublisher[STAGES.length];
+
+    private final double[] out = new double[3];
+
+    private double lastPublish = 0;
+
+    private VisionLatency() {
+
+        NetworkTable table = NetworkTableInstance.getDefault().getTable("apriltags").getSubTable("latency");
+
+        for (int i = 0; i < STAGES.length; ++i) {
+            // 1 ms buckets up to 200 ms
+            this.histograms[i] = new Histogram(1, 200);
+            this.publishers[i] = table.getDoubleArrayTopic(STAGES[i]).publish();
+        }
+    }
+
+    /**
+     * @return the current time on the clock every stage is measured with, in seconds
+     */
+    public static double now() {
+        return Timer.getFPGATimestamp();
+    }
+
+    /**
+     * records the coprocessor and transport stages of a freshly read result
+     * @param result the result
+     * @param readTime when it was read, from {@link #now()}
+     */
+    public synchronized void recordFrame(PhotonPipelineResult result, double readTime) {
+
+        double capture = result.getTimestampSeconds();
+        double published = capture + result.metadata.getLatencyMillis() / 1000.0;
+
+        this.histograms[COPROCESSOR].record((published - capture) * 1000.0);
+        this.histograms[TRANSPORT].record((readTime - published) * 1000.0);
+    }
+
+    /**
+     * @param readTime when the result was read, from {@link #now()}
+     * @param estimateTime when the estimate finished, from {@link #now()}
+     */
+    public synchronized void recordEstimate(double readTime, double estimateTime) {
+        this.histograms[ESTIMATION].record((estimateTime - readTime) * 1000.0);
+    }
+
+    /**
+     * @param captureTime capture timestamp of the fused measurement
+     * @param estimateTime when its estimate finished, from {@link #now()}
+     * @param fusionTime when it was fused, from {@link #now()}
+     */
+    public synchronized void recordFusion(double captureTime, double estimateTime, double fusionTime) {
+        this.histograms[FUSION].record((fusionTime - estimateTime) * 1000.0);
+        this.histograms[TOTAL].record((fusionTime - captureTime) * 1000.0);
+    }
+
+    /**
+     * publishes (and clears) the histograms if {@link #PUBLISH_PERIOD} has passed.
+     * Cheap to call every loop.
+     */
+    public synchronized void publish() {
+
+        double now = now();
+
+        if (now - this.lastPublish < PUBLISH_PERIOD) return;
+
+        this.lastPublish = now;
+
+        for (int i = 0; i < STAGES.length; ++i) {
+
+            Histogram h = this.histograms[i];
+
+            if (h.getCount() == 0) continue;
+
+            this.out[0] = h.getPercentile(0.50);
+            this.out[1] = h.getPercentile(0.95);
+            this.out[2] = h.getMax();
+
+            this.publishers[i].set(this.out);
+
+            h.reset();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package frc.robot.subsystems.visiondeps;
+
+import java.util.List;
+
+import org.photonvision.EstimatedRobotPose;
+import org.photonvision.targeting.PhotonTrackedTarget;
+
+import edu.wpi.first.math.geometry.Pose2d;
+
+/**
+ * a vision pose estimate plus the information needed to decide how much to trust it
+ */
+public class VisionMeasurement {
+
+    public final Pose2d pose;
+
+    /** capture time, on the FPGA time base */
+    public final double timestampSeconds;
+
+    public final int tagCount;
+
+    /**
+     * average distance to the tags used, in meters: planar, from the estimated pose once the
+     * {@link FieldLayout} has loaded, camera-to-tag before that
+     */
+    public final double avgDistance;
+
+    /** highest pose ambiguity over the tags used (only meaningful for single-tag estimates) */
+    public final double maxAmbiguity;
+
+    /** when the estimate finished, from {@link VisionLatency#now()} */
+    public final double estimateTime;
+
+    public VisionMeasurement(
+        Pose2d pose, double timestampSeconds, int tagCount, double avgDistance, double maxAmbiguity,
+        double estimateTime
+    ) {
+        this.pose = pose;
+        this.timestampSeconds = timestampSeconds;
+        this.tagCount = tagCount;
+        this.avgDistance = avgDistance;
+        this.maxAmbiguity = maxAmbiguity;
+        this.estimateTime = estimateTime;
+    }
+
+    /**
+     * builds a {@link VisionMeasurement} from a PhotonLib estimate
+     * @param estimate the estimate
+     * @param estimateTime when it finished, from {@link VisionLatency#now()}
+     */
+    public static VisionMeasurement of(EstimatedRobotPose estimate, double estimateTime) {
+
+        List<PhotonTrackedTarget> targets = estimate.targetsUsed;
+
+        Pose2d pose = estimate.estimatedPose.toPose2d();
+
+        FieldLayout layout = FieldLayout.X;
+
+        double distance = 0, ambiguity = 0;
+
+        for (int i = 0; i < targets.size(); ++i) {
+            PhotonTrackedTarget t = targets.get(i);
+
+            // measured from the pose being gated, not the target's own (possibly flipped) solution
+            distance += layout.hasTag(t.getFiducialId())
+                ? layout.distanceToTag(t.getFiducialId(), pose.getX(), pose.getY())
+                : t.getBestCameraToTarget().getTranslation().getNorm();
+
+            ambiguity = Math.max(ambiguity, t.getPoseAmbiguity());
+        }
+
+        int count = targets.size();
+
+        return new VisionMeasurement(
+            pose,
+            estimate.timestampSeconds,
+            count,
+            count == 0 ? 0 : distance / count,
+            ambiguity,
+            estimateTime
+        );
+    }
+}
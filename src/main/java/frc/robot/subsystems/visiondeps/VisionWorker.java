@@ -0,0 +1,144 @@
+package frc.robot.subsystems.visiondeps;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.photonvision.EstimatedRobotPose;
+import org.photonvision.targeting.PhotonPipelineResult;
+
+import com.gmail.frcteam1758.lib.util.LoopEvents;
+
+import edu.wpi.first.math.geometry.Pose2d;
+
+/**
+ * runs result decoding and pose estimation on its own thread, so the main robot loop
+ * never waits on PhotonLib.
+ * <p>
+ * The main loop hands the worker an odometry snapshot with {@link #setReferencePose(Pose2d)}
+ * and picks up finished estimates with {@link #poll()}. Both are single lock-free
+ * {@link AtomicReference} swaps; only the newest value on either side is kept.
+ * <p>
+ * The worker also runs the {@link PipelineSwitcher}.
+ */
+public class VisionWorker {
+
+    public static final VisionWorker X = new VisionWorker();
+
+    // how often the worker checks for a new camera result
+    private static final long POLL_PERIOD_MS = 5;
+
+    private final AtomicReference<Pose2d> referencePose = new AtomicReference<>(new Pose2d());
+
+    private final AtomicReference<VisionMeasurement> latest = new AtomicReference<>();
+
+    // newest frame and estimate, kept for (low-rate) telemetry only
+    private final AtomicReference<PhotonPipelineResult> latestResult = new AtomicReference<>();
+    private final AtomicReference<EstimatedRobotPose> latestEstimate = new AtomicReference<>();
+
+    private Thread thread;
+
+    private VisionWorker() {}
+
+    /**
+     * starts the worker thread. Calling it more than once does nothing.
+     */
+    public synchronized void start() {
+
+        if (this.thread != null) return;
+
+        this.thread = new Thread(this::run, "vision-worker");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * @param pose the latest odometry pose, used as the estimator's reference
+     */
+    public void setReferencePose(Pose2d pose) {
+        this.referencePose.set(pose);
+    }
+
+    /**
+     * @return the newest finished estimate since the last call, or null if there is none
+     */
+    public VisionMeasurement poll() {
+        return this.latest.getAndSet(null);
+    }
+
+    /**
+     * @return the newest camera result, or null if there has not been one (for telemetry)
+     */
+    public PhotonPipelineResult getLatestResult() {
+        return this.latestResult.get();
+    }
+
+    /**
+     * @return the newest estimate, whether or not it has been polled, or null (for telemetry)
+     */
+    public EstimatedRobotPose getLatestEstimate() {
+        return this.latestEstimate.get();
+    }
+
+    private void run() {
+
+        PhotonVisionWrapper photonVision = PhotonVisionWrapper.X;
+
+        PipelineSwitcher pipelines = new PipelineSwitcher(photonVision);
+
+        double lastFrameTimestamp = 0;
+
+        while (!Thread.currentThread().isInterrupted()) {
+
+            try {
+                PhotonPipelineResult result = photonVision.getLatestResult();
+                double readTime = VisionLatency.now();
+
+                if (result != null && result.getTimestampSeconds() != lastFrameTimestamp) {
+
+                    lastFrameTimestamp = result.getTimestampSeconds();
+
+                    this.process(photonVision, result, readTime);
+
+                    pipelines.update(result, readTime);
+                }
+            }
+            catch (Exception e) {
+                // keep the worker alive; one bad frame should not end vision for the match
+                e.printStackTrace();
+            }
+
+            try {
+                Thread.sleep(POLL_PERIOD_MS);
+            }
+            catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void process(PhotonVisionWrapper photonVision, PhotonPipelineResult result, double readTime) {
+
+        VisionLatency.X.recordFrame(result, readTime);
+
+        this.latestResult.set(result);
+
+        LoopEvents.VisionEstimate event = LoopEvents.isEnabled() ? new LoopEvents.VisionEstimate() : null;
+        if (event != null) event.begin();
+
+        var estimateOpt = photonVision.getEstimatedGlobalPose(this.referencePose.get(), result);
+
+        if (event != null) {
+            event.succeeded = estimateOpt.isPresent();
+            event.commit();
+        }
+
+        if (estimateOpt.isPresent()) {
+
+            double estimateTime = VisionLatency.now();
+
+            VisionLatency.X.recordEstimate(readTime, estimateTime);
+
+            this.latest.set(VisionMeasurement.of(estimateOpt.get(), estimateTime));
+            this.latestEstimate.set(estimateOpt.get());
+        }
+    }
+}
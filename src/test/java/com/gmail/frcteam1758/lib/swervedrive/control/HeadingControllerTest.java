@@ -0,0 +1,132 @@
+package com.gmail.frcteam1758.lib.swervedrive.control;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.MathUtil;
+
+class HeadingControllerTest {
+
+    private static final double MAX_VEL = 4, MAX_ACCEL = 16, TOLERANCE = Math.toRadians(1), DT = 0.02;
+
+    private static HeadingController controller() {
+        return new HeadingController(MAX_VEL, MAX_ACCEL, TOLERANCE);
+    }
+
+    /**
+     * drives an ideal plant (the robot turns at exactly the commanded rate) toward the target
+     * @return {largest distance past the target, final error}, in radians
+     */
+    private static double[] simulate(HeadingController c, double start, double target, double seconds) {
+
+        double heading = start, rate = 0, worstOvershoot = 0;
+
+        double direction = Math.signum(MathUtil.angleModulus(target - start));
+
+        c.setTarget(target);
+
+        for (int i = 0; i < seconds / DT; ++i) {
+
+            rate = c.calculate(heading, rate, DT);
+            heading = MathUtil.angleModulus(heading + rate * DT);
+
+            // positive once the heading is past the target, in the direction it approached from
+            double past = -direction * MathUtil.angleModulus(target - heading);
+            worstOvershoot = Math.max(worstOvershoot, past);
+        }
+
+        return new double[] { worstOvershoot, MathUtil.angleModulus(target - heading) };
+    }
+
+    @Test
+    void takesTheShortWayAcrossPi() {
+
+        HeadingController c = controller();
+
+        // target just counter-clockwise of -pi; clockwise would be almost a full turn
+        double omega = c.calculate(Math.PI - 0.1, 0, -Math.PI + 0.1, DT);
+
+        assertEquals(0.2, c.getError(), 1e-9);
+        assertTrue(omega > 0);
+
+        omega = c.calculate(-Math.PI + 0.1, 0, Math.PI - 0.1, DT);
+
+        assertEquals(-0.2, c.getError(), 1e-9);
+        assertTrue(omega < 0);
+    }
+
+    @Test
+    void settlesAcrossPiWithoutOvershoot() {
+
+        double[] result = simulate(controller(), 3.0, -3.0, 2);
+
+        assertTrue(result[0] < TOLERANCE, "overshoot " + result[0]);
+        assertEquals(0, result[1], TOLERANCE);
+    }
+
+    @Test
+    void settlesWithoutOvershoot() {
+
+        double[] targets = { Math.PI / 2, -2.5, 0.3, 0.05, Math.PI - 0.01 };
+
+        for (double target : targets) {
+
+            double[] result = simulate(controller(), 0, target, 3);
+
+            assertTrue(result[0] < TOLERANCE, "overshoot " + result[0] + " toward " + target);
+            assertEquals(0, result[1], TOLERANCE, "final error toward " + target);
+        }
+    }
+
+    @Test
+    void respectsMaxVelocityAndAcceleration() {
+
+        HeadingController c = controller();
+        c.setTarget(Math.PI);
+
+        double heading = 0, rate = 0;
+
+        for (int i = 0; i < 100; ++i) {
+
+            double next = c.calculate(heading, rate, DT);
+
+            assertTrue(Math.abs(next) <= MAX_VEL + 1e-9);
+            assertTrue(Math.abs(next - rate) <= MAX_ACCEL * DT + 1e-9);
+
+            rate = next;
+            heading = MathUtil.angleModulus(heading + rate * DT);
+        }
+    }
+
+    @Test
+    void atTargetNeedsACalculation() {
+
+        HeadingController c = controller();
+
+        // nothing calculated yet
+        assertFalse(c.atTarget());
+        assertTrue(Double.isNaN(c.getError()));
+
+        c.calculate(1.0, 0, 1.0 + TOLERANCE / 2, DT);
+        assertTrue(c.atTarget());
+
+        c.reset();
+        assertFalse(c.atTarget());
+
+        c.calculate(1.0, 0, 1.0 + 2 * TOLERANCE, DT);
+        assertFalse(c.atTarget());
+    }
+
+    @Test
+    void atTargetWrapsAcrossPi() {
+
+        HeadingController c = controller();
+
+        c.calculate(Math.PI - TOLERANCE / 4, 0, -Math.PI + TOLERANCE / 4, DT);
+
+        assertTrue(c.atTarget());
+    }
+}
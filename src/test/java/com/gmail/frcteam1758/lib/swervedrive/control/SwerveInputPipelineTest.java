@@ -0,0 +1,123 @@
+package com.gmail.frcteam1758.lib.swervedrive.control;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.DoubleSupplier;
+import java.util.function.DoubleUnaryOperator;
+
+import org.junit.jupiter.api.Test;
+
+class SwerveInputPipelineTest {
+
+    private static final int WARMUP = 20_000, CYCLES = 10_000;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private int headingReads = 0;
+
+    private final DoubleSupplier heading = () -> {
+        ++this.headingReads;
+        return 0.5;
+    };
+
+    private static SwerveInputStage[] robotOrientedStages() {
+        return new SwerveInputStage[] {
+            new SwerveInputStages.Deadband(0.05),
+            new SwerveInputStages.ResponseCurve(DoubleUnaryOperator.identity(), DoubleUnaryOperator.identity()),
+            new SwerveInputStages.PolarSlewLimit(1.2, 1.8, 2.0),
+            new SwerveInputStages.Scale(4.8, 4.0)
+        };
+    }
+
+    /** @return bytes allocated by this thread over {@code cycles} runs */
+    private static long allocatedOver(SwerveInputPipeline pipeline, int cycles) {
+
+        long before = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+
+        for (int i = 0; i < cycles; ++i) {
+            pipeline.run(0.4, -0.3, 0.2);
+        }
+
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+    }
+
+    @Test
+    void skipsTheHeadingWhenNoStageUsesIt() {
+
+        SwerveInputStages.HeadingHold hold = new SwerveInputStages.HeadingHold(new HeadingController(4, 16, 0.02));
+
+        SwerveInputStage[] stages = robotOrientedStages();
+        SwerveInputStage[] withHold = new SwerveInputStage[stages.length + 1];
+        System.arraycopy(stages, 0, withHold, 0, stages.length);
+        withHold[stages.length] = hold;
+
+        SwerveInputPipeline pipeline = new SwerveInputPipeline(this.heading, withHold);
+
+        pipeline.run(0.4, -0.3, 0.2);
+
+        assertEquals(0, this.headingReads);
+        assertEquals(0, pipeline.getFrame().heading);
+
+        // holding a heading needs it
+        hold.enable(() -> 0, () -> 0);
+        pipeline.run(0.4, -0.3, 0.2);
+
+        assertEquals(1, this.headingReads);
+        assertEquals(0.5, pipeline.getFrame().heading);
+    }
+
+    @Test
+    void readsTheHeadingForFieldRotation() {
+
+        SwerveInputPipeline pipeline = new SwerveInputPipeline(this.heading, new SwerveInputStages.FieldRotation());
+
+        pipeline.run(1, 0, 0);
+        pipeline.run(1, 0, 0);
+
+        assertEquals(2, this.headingReads);
+    }
+
+    @Test
+    void fieldOrientedDoesNotAllocate() {
+
+        SwerveInputStages.HeadingHold hold = new SwerveInputStages.HeadingHold(new HeadingController(4, 16, 0.02));
+        SwerveInputStages.HeadingLead lead = new SwerveInputStages.HeadingLead();
+        SwerveInputStages.Discretize discretize = new SwerveInputStages.Discretize();
+
+        DoubleSupplier target = () -> 1.0, rate = () -> 0.1;
+
+        hold.enable(target, rate);
+        lead.enable(rate, 0.03);
+        discretize.enable(0.02);
+
+        SwerveInputStage[] stages = robotOrientedStages();
+
+        SwerveInputPipeline pipeline = new SwerveInputPipeline(this.heading,
+            stages[0], stages[1], stages[2], stages[3],
+            hold, lead, new SwerveInputStages.FieldRotation(), discretize
+        );
+
+        // let the JIT compile the loop first; the interpreter may box
+        allocatedOver(pipeline, WARMUP);
+
+        long bytes = allocatedOver(pipeline, CYCLES);
+
+        // anything per cycle would be at least 16 bytes * CYCLES
+        assertTrue(bytes < CYCLES, bytes + " bytes over " + CYCLES + " cycles");
+    }
+
+    @Test
+    void robotOrientedDoesNotAllocate() {
+
+        SwerveInputPipeline pipeline = new SwerveInputPipeline(SwerveDriveControls2023.GET_ZERO, robotOrientedStages());
+
+        allocatedOver(pipeline, WARMUP);
+
+        long bytes = allocatedOver(pipeline, CYCLES);
+
+        assertTrue(bytes < CYCLES, bytes + " bytes over " + CYCLES + " cycles");
+    }
+}